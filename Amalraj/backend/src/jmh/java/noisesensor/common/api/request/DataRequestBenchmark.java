@@ -0,0 +1,51 @@
+package noisesensor.common.api.request;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Body of POST /api/data as sent by a device, read with an ObjectMapper configured like Quarkus' default one
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataRequestBenchmark {
+
+    private static final byte[] BODY = ("{\"sensor_id\":\"7f3c2b1e-5a4d-4e8f-9b6a-1c2d3e4f5a6b\","
+            + "\"location_id\":\"0e9d8c7b-6a5f-4e3d-8c2b-1a0f9e8d7c6b\","
+            + "\"timestamp\":\"2025-11-03T14:02:11\","
+            + "\"noise_LAeq\":52.7,\"noise_LAmax\":63.9,\"noise_LAmin\":44.1}").getBytes();
+
+    ObjectReader reader;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        reader = mapper.readerFor(DataRequest.class);
+    }
+
+    @Benchmark
+    public DataRequest deserialize() throws IOException {
+        return reader.readValue(BODY);
+    }
+}
@@ -0,0 +1,101 @@
+package noisesensor.domain.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import noisesensor.data.model.DailyNoiseModel;
+import noisesensor.data.model.LocationModel;
+import noisesensor.data.model.SensorModel;
+import noisesensor.utils.LevelHistogram;
+import noisesensor.utils.ReadingRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// JSON building of the display responses, from entities and readings already in memory:
+// a day of 10 s readings, a week of daily rows, and the all-time view of a sensor with two years of rows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DisplayJsonBenchmark {
+
+    private static final long MIDNIGHT = 1_760_054_400L;
+
+    DisplayService displayService;
+    ReadingRingBuffer.Slice day;
+    List<DailyNoiseModel> week;
+    SensorModel sensor;
+
+    @Setup
+    public void setUp() {
+        displayService = new DisplayService();
+        Random random = new Random(42);
+
+        ReadingRingBuffer buffer = new ReadingRingBuffer(8640);
+        for (int i = 0; i < 8640; i++) {
+            float level = 45 + (float) random.nextGaussian() * 8;
+            buffer.add(MIDNIGHT + 10L * i, level, level + 6, level - 4);
+        }
+        day = buffer.between(MIDNIGHT, MIDNIGHT + 86_400);
+
+        LocationModel location = new LocationModel(UUID.randomUUID(), null, "DE", 48.78f, 9.18f, 262f, false);
+        sensor = new SensorModel();
+        sensor.setId(UUID.randomUUID());
+        sensor.setSource("nightingale");
+        sensor.setLocation(location);
+        List<DailyNoiseModel> rows = new ArrayList<>();
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 730; i++) {
+            LevelHistogram histogram = new LevelHistogram();
+            for (int j = 0; j < 100; j++) {
+                histogram.add(45 + (float) random.nextGaussian() * 8);
+            }
+            rows.add(new DailyNoiseModel(UUID.randomUUID(), sensor, first.plusDays(i), 52, 71, 33, 8640, 1e9,
+                    histogram.toArray()));
+        }
+        sensor.setDaily_noises(rows);
+        week = rows.subList(0, 7);
+    }
+
+    @Benchmark
+    public JsonArray dayReadings() {
+        return displayService.readingsToJson(day);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public JsonArray weekRows() {
+        JsonArray array = new JsonArray();
+        for (DailyNoiseModel noise : week) {
+            array.add(displayService.dailyNoiseModelToJson(noise));
+        }
+        return array;
+    }
+
+    @Benchmark
+    public JsonObject allTime() {
+        return displayService.sensorModelToJson(sensor);
+    }
+
+    // What the resource finally writes
+    @Benchmark
+    public String allTimeEncoded() {
+        return displayService.sensorModelToJson(sensor).encode();
+    }
+}
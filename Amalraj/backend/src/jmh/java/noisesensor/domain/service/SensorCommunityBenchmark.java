@@ -0,0 +1,80 @@
+package noisesensor.domain.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import noisesensor.utils.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Parsing and filtering of the hourly Sensor.Community feed, without the database part (storeSensor).
+// The feed is the recorded fixture repeated up to 'records' entries, ids shifted so sensors stay distinct.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorCommunityBenchmark {
+
+    @Param({"1000", "10000", "30000"})
+    int records;
+
+    SensorCommunityService service;
+    String feed;
+    JsonArray parsed;
+    JsonObject noiseRecord;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new SensorCommunityService();
+        service.logger = new Logger();
+        service.logger.start();
+        JsonArray fixture;
+        try (InputStream in = SensorCommunityBenchmark.class.getResourceAsStream("/fixtures/sensor-community-feed.json")) {
+            fixture = new JsonArray(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < records; i++) {
+            JsonObject record = fixture.getJsonObject(i % fixture.size()).copy();
+            int copy = i / fixture.size();
+            JsonObject sensor = record.getJsonObject("sensor");
+            sensor.put("id", sensor.getInteger("id") + copy * fixture.size());
+            JsonObject location = record.getJsonObject("location");
+            location.put("id", location.getInteger("id") + copy * fixture.size());
+            array.add(record);
+        }
+        feed = array.encode();
+        parsed = service.processData(feed);
+        noiseRecord = fixture.getJsonObject(0);
+    }
+
+    @Benchmark
+    public JsonArray processData() {
+        return service.processData(feed);
+    }
+
+    @Benchmark
+    public JsonArray filterData() {
+        return service.filterData(parsed);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public JsonObject transformData() {
+        return service.transformData(noiseRecord);
+    }
+}
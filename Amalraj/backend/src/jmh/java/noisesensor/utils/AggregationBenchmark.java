@@ -0,0 +1,82 @@
+package noisesensor.utils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The aggregation math behind the streaming and nightly aggregation: adding readings (energy sum,
+// max, min, histogram), merging checkpointed periods into a day, and reading L10/L50/L90.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    private static final int READINGS = 4096;
+
+    float[] levels;
+    LevelAccumulator accumulator;
+    LevelAccumulator[] hours;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        levels = new float[READINGS];
+        for (int i = 0; i < READINGS; i++) {
+            levels[i] = 35 + (float) random.nextGaussian() * 10;
+        }
+        accumulator = new LevelAccumulator();
+        hours = new LevelAccumulator[24];
+        for (int h = 0; h < hours.length; h++) {
+            hours[h] = new LevelAccumulator();
+            for (int i = 0; i < 360; i++) {
+                float level = levels[(h * 360 + i) % READINGS];
+                hours[h].add(level, level + 5, level - 5);
+            }
+        }
+    }
+
+    // Ingest path: one reading into a running period
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public LevelAccumulator add() {
+        for (float level : levels) {
+            accumulator.add(level, level + 5, level - 5);
+        }
+        return accumulator;
+    }
+
+    // Nightly path: the hourly periods of a day merged into the daily one
+    @Benchmark
+    public LevelAccumulator mergeDay() {
+        LevelAccumulator day = new LevelAccumulator();
+        for (LevelAccumulator hour : hours) {
+            day.merge(hour);
+        }
+        return day;
+    }
+
+    @Benchmark
+    public float laeq() {
+        return hours[12].getLaeq();
+    }
+
+    @Benchmark
+    public Float statisticalLevels() {
+        LevelAccumulator hour = hours[12];
+        return hour.exceeded(10) + hour.exceeded(50) + hour.exceeded(90);
+    }
+}
@@ -0,0 +1,247 @@
+package noisesensor.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Simulated fleet of ESP32 sensors against a running backend: every device subscribes once with
+// PUT /api/subscribe, then posts a reading to POST /api/data every interval (+- jitter), retrying
+// failed posts like the firmware does. The fleet grows by 'factor' each step until the node saturates:
+// throughput below 90% of the offered rate, p99 above max-p99-ms or errors above max-error-rate.
+//
+// Start the app against a local Postgres (the default datasource in application.properties), then:
+//   mvn -Ploadtest test-compile exec:exec [-Dloadtest.args="--devices=100 --interval-ms=500"]
+public class FleetLoadTest {
+
+    private static final Pattern SENSOR_ID = Pattern.compile("\"sensor_id\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern LOCATION_ID = Pattern.compile("\"location_id\"\\s*:\\s*\"([^\"]+)\"");
+    private static final double MIN_THROUGHPUT_RATIO = 0.9;
+
+    private record Device(String sensorId, String locationId) {
+    }
+
+    // One step of the sweep; only readings sent after the warm-up count
+    private static final class Step {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong inFlight = new AtomicLong();
+        volatile long measureFrom;
+        volatile boolean running = true;
+    }
+
+    private final Map<String, String> options;
+    private final URI baseUri;
+    private final long intervalMs;
+    private final long jitterMs;
+    private final int retries;
+    private final long retryBackoffMs;
+    private final Duration timeout;
+    private final HttpClient client;
+    private final ScheduledExecutorService scheduler;
+    private final List<Device> devices = new ArrayList<>();
+
+    FleetLoadTest(Map<String, String> options) {
+        this.options = options;
+        this.baseUri = URI.create(option("base-url", "http://localhost:8080"));
+        this.intervalMs = Long.parseLong(option("interval-ms", "1000"));
+        this.jitterMs = Long.parseLong(option("jitter-ms", "200"));
+        this.retries = Integer.parseInt(option("retries", "2"));
+        this.retryBackoffMs = Long.parseLong(option("retry-backoff-ms", "200"));
+        this.timeout = Duration.ofMillis(Long.parseLong(option("timeout-ms", "5000")));
+        ExecutorService responses = Executors.newFixedThreadPool(Integer.parseInt(option("threads", "8")));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(responses)
+                .build();
+        this.scheduler = Executors.newScheduledThreadPool(2);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new FleetLoadTest(options).sweep();
+        System.exit(0);
+    }
+
+    void sweep() throws InterruptedException {
+        int count = Integer.parseInt(option("devices", "50"));
+        int maxDevices = Integer.parseInt(option("max-devices", "5000"));
+        double factor = Double.parseDouble(option("factor", "2"));
+        long stepSeconds = Long.parseLong(option("step-seconds", "60"));
+        long warmupSeconds = Long.parseLong(option("warmup-seconds", "10"));
+        double maxP99Ms = Double.parseDouble(option("max-p99-ms", "500"));
+        double maxErrorRate = Double.parseDouble(option("max-error-rate", "0.01"));
+
+        System.out.printf(Locale.ROOT, "%8s %10s %10s %9s %9s %9s %8s %8s%n",
+                "devices", "offered/s", "ok/s", "p50 ms", "p99 ms", "p999 ms", "errors", "retries");
+        int lastGood = 0;
+        while (count <= maxDevices) {
+            subscribe(count);
+            Step step = run(count, warmupSeconds, stepSeconds);
+            double offered = count * 1000.0 / intervalMs;
+            double throughput = step.succeeded.get() / (double) stepSeconds;
+            long attempted = step.succeeded.get() + step.failed.get();
+            double errorRate = attempted == 0 ? 0 : step.failed.get() / (double) attempted;
+            double p99 = step.latency.percentile(99) / 1000.0;
+            System.out.printf(Locale.ROOT, "%8d %10.1f %10.1f %9.2f %9.2f %9.2f %7.2f%% %8d%n",
+                    count, offered, throughput, step.latency.percentile(50) / 1000.0, p99,
+                    step.latency.percentile(99.9) / 1000.0, errorRate * 100, step.retries.get());
+
+            List<String> reasons = new ArrayList<>();
+            if (throughput < offered * MIN_THROUGHPUT_RATIO) {
+                reasons.add("throughput below " + (int) (MIN_THROUGHPUT_RATIO * 100) + "% of offered");
+            }
+            if (p99 > maxP99Ms) {
+                reasons.add("p99 above " + maxP99Ms + " ms");
+            }
+            if (errorRate > maxErrorRate) {
+                reasons.add("error rate above " + maxErrorRate * 100 + "%");
+            }
+            if (!reasons.isEmpty()) {
+                System.out.println("Saturated at " + count + " devices: " + String.join(", ", reasons)
+                        + ". Last sustained fleet: " + (lastGood == 0 ? "none" : lastGood + " devices"));
+                return;
+            }
+            lastGood = count;
+            count = Math.max(count + 1, (int) Math.round(count * factor));
+        }
+        System.out.println("No saturation up to " + lastGood + " devices");
+    }
+
+    // Subscribes devices until the fleet has 'count', a few at a time like devices booting together
+    private void subscribe(int count) {
+        List<CompletableFuture<Device>> pending = new ArrayList<>();
+        for (int i = devices.size(); i < count; i++) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String body = String.format(Locale.ROOT,
+                    "{\"country\":\"DK\",\"latitude\":%.5f,\"longitude\":%.5f,\"altitude\":0,\"indoor\":%b}",
+                    55.6 + random.nextDouble(0.1), 12.5 + random.nextDouble(0.1), random.nextBoolean());
+            HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/subscribe"))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+                Matcher sensor = SENSOR_ID.matcher(response.body());
+                Matcher location = LOCATION_ID.matcher(response.body());
+                if (response.statusCode() != 200 || !sensor.find() || !location.find()) {
+                    throw new IllegalStateException("Subscribe failed: " + response.statusCode() + " " + response.body());
+                }
+                return new Device(sensor.group(1), location.group(1));
+            }));
+            if (pending.size() == 64) {
+                pending.forEach(future -> devices.add(future.join()));
+                pending.clear();
+            }
+        }
+        pending.forEach(future -> devices.add(future.join()));
+    }
+
+    private Step run(int count, long warmupSeconds, long stepSeconds) throws InterruptedException {
+        Step step = new Step();
+        step.measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        for (int i = 0; i < count; i++) {
+            Device device = devices.get(i);
+            // Devices boot spread over one interval
+            long delay = ThreadLocalRandom.current().nextLong(intervalMs);
+            scheduler.schedule(() -> tick(step, device), delay, TimeUnit.MILLISECONDS);
+        }
+        TimeUnit.SECONDS.sleep(warmupSeconds + stepSeconds);
+        step.running = false;
+        long deadline = System.nanoTime() + timeout.toNanos() * (retries + 1);
+        while (step.inFlight.get() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        return step;
+    }
+
+    private void tick(Step step, Device device) {
+        if (!step.running) {
+            return;
+        }
+        boolean measured = System.nanoTime() >= step.measureFrom;
+        if (measured) {
+            step.sent.incrementAndGet();
+        }
+        step.inFlight.incrementAndGet();
+        post(step, reading(device), 0, measured);
+        long next = intervalMs + (jitterMs == 0 ? 0 : ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1));
+        scheduler.schedule(() -> tick(step, device), Math.max(1, next), TimeUnit.MILLISECONDS);
+    }
+
+    private HttpRequest reading(Device device) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        float laeq = 45 + random.nextFloat() * 20;
+        String body = String.format(Locale.ROOT,
+                "{\"sensor_id\":\"%s\",\"location_id\":\"%s\",\"timestamp\":\"%s\","
+                        + "\"noise_LAeq\":%.1f,\"noise_LAmax\":%.1f,\"noise_LAmin\":%.1f}",
+                device.sensorId(), device.locationId(),
+                LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS),
+                laeq, laeq + random.nextFloat() * 10, laeq - random.nextFloat() * 10);
+        return HttpRequest.newBuilder(baseUri.resolve("/api/data"))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // Latency is recorded per attempt, an error only once every retry failed.
+    // A reading stays in flight until its last attempt completed.
+    private void post(Step step, HttpRequest request, int attempt, boolean measured) {
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+            if (measured) {
+                step.latency.record((System.nanoTime() - start) / 1000);
+            }
+            boolean retryable = failure != null || response.statusCode() >= 500 || response.statusCode() == 429;
+            boolean ok = failure == null && response.statusCode() == 200 && "true".equals(response.body().trim());
+            if (ok) {
+                if (measured) {
+                    step.succeeded.incrementAndGet();
+                }
+            } else if (retryable && attempt < retries && step.running) {
+                if (measured) {
+                    step.retries.incrementAndGet();
+                }
+                long backoff = retryBackoffMs << attempt;
+                scheduler.schedule(() -> post(step, request, attempt + 1, measured), backoff, TimeUnit.MILLISECONDS);
+                return;
+            } else if (measured) {
+                step.failed.incrementAndGet();
+            }
+            step.inFlight.decrementAndGet();
+        });
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+}
@@ -0,0 +1,63 @@
+package noisesensor.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latencies in microseconds, in log-linear buckets: exact below 128 microseconds, then 64 buckets per power of two
+// (under 2% error). Recording is lock-free, so every request thread records directly.
+public class LatencyHistogram {
+
+    private static final int LINEAR = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int MAX_EXPONENT = 40; // about 12 days
+
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR + (MAX_EXPONENT - 6) * SUB_BUCKETS);
+
+    public void record(long micros) {
+        counts.incrementAndGet(indexOf(Math.max(0, micros)));
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Upper bound of the bucket holding the given percentile, 0 when nothing was recorded
+    public long percentile(double percent) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percent / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length() - 1);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+        int shift = exponent - 6;
+        int sub = (int) Math.min(micros >>> shift, 2 * SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 7) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 7;
+        int sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - 6;
+        return ((long) (sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,117 @@
+package noisesensor.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Time to first request and resident memory of the JVM and native builds, each started 'runs' times.
+// A run starts the build, polls 'url' until it answers 200 and reads the process RSS right after
+// (Linux /proc). Build both first (mvn package, mvn package -Dnative), with a local Postgres running.
+public class StartupBenchmark {
+
+    private static final long POLL_MILLIS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        Map<String, String> builds = new LinkedHashMap<>();
+        builds.put("jvm", options.getOrDefault("jvm", "java -jar target/quarkus-app/quarkus-run.jar"));
+        builds.put("native", options.getOrDefault("native", "target/backend-1.0-runner"));
+        URI url = URI.create(options.getOrDefault("url", "http://localhost:8080/api/hello"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout-s", "120")));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        System.out.printf(Locale.ROOT, "%-8s %6s %12s %12s %12s %10s%n",
+                "build", "runs", "first ms", "min ms", "max ms", "RSS MiB");
+        for (Map.Entry<String, String> build : builds.entrySet()) {
+            List<Long> millis = new ArrayList<>();
+            List<Long> rss = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                long[] run = run(build.getValue(), url, client, timeout);
+                millis.add(run[0]);
+                if (run[1] > 0) {
+                    rss.add(run[1]);
+                }
+            }
+            millis.sort(null);
+            rss.sort(null);
+            System.out.printf(Locale.ROOT, "%-8s %6d %12d %12d %12d %10s%n", build.getKey(), runs,
+                    median(millis), millis.get(0), millis.get(millis.size() - 1),
+                    rss.isEmpty() ? "n/a" : String.valueOf(median(rss) / 1024));
+        }
+    }
+
+    // Milliseconds until the first 200 response and the RSS in KiB then (0 when unknown)
+    private static long[] run(String command, URI url, HttpClient client, Duration timeout)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(Arrays.asList(command.split(" ")))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(command + " exited with " + process.exitValue());
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(command + " did not answer " + url + " within " + timeout);
+                }
+                try {
+                    HttpResponse<Void> response = client.send(HttpRequest.newBuilder(url).GET().build(),
+                            HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                TimeUnit.MILLISECONDS.sleep(POLL_MILLIS);
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new long[] {millis, residentKib(process.pid())};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static long residentKib(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static long median(List<Long> sorted) {
+        return sorted.get(sorted.size() / 2);
+    }
+}
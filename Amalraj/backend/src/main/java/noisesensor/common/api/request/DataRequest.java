@@ -3,8 +3,10 @@ package noisesensor.common.api.request;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.*;
 
+@RegisterForReflection
 @AllArgsConstructor
 @Setter
 @Getter
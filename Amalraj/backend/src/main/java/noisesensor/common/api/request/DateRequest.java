@@ -2,8 +2,10 @@ package noisesensor.common.api.request;
 
 import java.time.LocalDateTime;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.*;
 
+@RegisterForReflection
 @AllArgsConstructor
 @Setter
 @Getter
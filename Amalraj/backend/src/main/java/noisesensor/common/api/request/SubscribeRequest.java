@@ -1,7 +1,9 @@
 package noisesensor.common.api.request;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.*;
 
+@RegisterForReflection
 @AllArgsConstructor
 @Setter
 @Getter
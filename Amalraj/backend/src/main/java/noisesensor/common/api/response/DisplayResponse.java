@@ -2,8 +2,10 @@ package noisesensor.common.api.response;
 
 import java.util.List;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.Value;
 
+@RegisterForReflection
 @Value
 public class DisplayResponse {
     LocationResponse locationResponse;
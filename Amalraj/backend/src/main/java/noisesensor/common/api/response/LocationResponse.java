@@ -1,7 +1,9 @@
 package noisesensor.common.api.response;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.Value;
 
+@RegisterForReflection
 @Value
 public class LocationResponse {
     String country;
@@ -2,8 +2,10 @@ package noisesensor.common.api.response;
 
 import java.time.LocalDateTime;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.Value;
 
+@RegisterForReflection
 @Value
 public class NoiseResponse {
     LocalDateTime timestamp;
@@ -11,4 +13,9 @@ public class NoiseResponse {
     Float noise_LAeq;
     Float noise_LAmax;
     Float noise_LAmin;
+
+    // Statistical levels, only for aggregated data
+    Float noise_L10;
+    Float noise_L50;
+    Float noise_L90;
 }
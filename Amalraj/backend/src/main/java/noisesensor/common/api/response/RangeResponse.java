@@ -0,0 +1,15 @@
+package noisesensor.common.api.response;
+
+import java.util.List;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.Value;
+
+@RegisterForReflection
+@Value
+public class RangeResponse {
+    LocationResponse locationResponse;
+    List<NoiseResponse> noiseResponses;
+    String source;
+    String resolution;
+}
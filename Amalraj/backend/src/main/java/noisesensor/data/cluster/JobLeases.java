@@ -0,0 +1,151 @@
+package noisesensor.data.cluster;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Predicate;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.agroal.api.AgroalDataSource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import noisesensor.utils.Logger;
+import noisesensor.utils.Shard;
+
+// Scheduled jobs fire on every node, the work of a run is leased so each part of it is done once.
+// A job's run (e.g. the import of one hour) is split in 'shards' parts by sensor range (see Shard).
+// A node takes a part by its Postgres advisory lock and records it in job_run once done, nodes firing
+// later skip the parts already done. The locks belong to a connection this node holds for the run,
+// a node dying mid-run releases them with its connection and leaves its part undone.
+// Try it with two instances on one database:
+//   java -Dnoisesensor.jobs.node=a -jar target/quarkus-app/quarkus-run.jar
+//   java -Dnoisesensor.jobs.node=b -Dquarkus.http.port=8081 -jar target/quarkus-app/quarkus-run.jar
+//   select * from job_run order by finished_at desc;
+@ApplicationScoped
+public class JobLeases {
+
+    // First key of every advisory lock of the application, the second one is the lock's name
+    public static final int LOCK_NAMESPACE = 0x4e53;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "noisesensor.jobs.node", defaultValue = "node")
+    String node;
+
+    @ConfigProperty(name = "noisesensor.jobs.shards", defaultValue = "1")
+    int shards;
+
+    @ConfigProperty(name = "noisesensor.jobs.keep-days", defaultValue = "30")
+    int keepDays;
+
+    public static int lockKey(String name) {
+        return name.hashCode();
+    }
+
+    public int run(String job, String period, Predicate<Shard> work) {
+        return run(job, period, shards, work);
+    }
+
+    // Runs 'work' for the shards of 'job' no node did for 'period' yet and no other node is doing right now.
+    // A shard counts as done when 'work' returns true. Returns the number of shards done by this node.
+    public int run(String job, String period, int count, Predicate<Shard> work) {
+        int done = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            // Nodes start at different shards, so they do not all queue for the first one
+            int first = Math.floorMod(node.hashCode(), count);
+            for (int i = 0; i < count; i++) {
+                Shard shard = new Shard((first + i) % count, count);
+                int key = lockKey(job + "/" + shard);
+                if (!lock(connection, key)) {
+                    continue;
+                }
+                try {
+                    if (isDone(connection, job, period, shard)) {
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    if (work.test(shard)) {
+                        markDone(connection, job, period, shard);
+                        done++;
+                        logger.info(job + " " + period + " shard " + shard + " done by " + node + " in "
+                                + (System.nanoTime() - start) / 1_000_000 + " ms");
+                    }
+                } catch (RuntimeException e) {
+                    logger.error(job + " " + period + " shard " + shard + " failed: " + e);
+                } finally {
+                    unlock(connection, key);
+                }
+            }
+            if (done > 0) {
+                forgetOldRuns(connection);
+            }
+        } catch (SQLException e) {
+            logger.error("Job lease of " + job + " failed: " + e);
+        }
+        return done;
+    }
+
+    // A job done by one node per period, not split
+    public boolean runOnce(String job, String period, Runnable work) {
+        return run(job, period, 1, shard -> {
+            work.run();
+            return true;
+        }) > 0;
+    }
+
+    private static boolean lock(Connection connection, int key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select pg_try_advisory_lock(?, ?)")) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            statement.setInt(2, key);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    private static void unlock(Connection connection, int key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select pg_advisory_unlock(?, ?)")) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            statement.setInt(2, key);
+            statement.execute();
+        }
+    }
+
+    private static boolean isDone(Connection connection, String job, String period, Shard shard) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select 1 from job_run where job = ? and period = ? and shard = ?")) {
+            statement.setString(1, job);
+            statement.setString(2, period);
+            statement.setString(3, shard.toString());
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next();
+            }
+        }
+    }
+
+    private void markDone(Connection connection, String job, String period, Shard shard) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "insert into job_run (job, period, shard, node, finished_at) values (?, ?, ?, ?, now()) "
+                + "on conflict do nothing")) {
+            statement.setString(1, job);
+            statement.setString(2, period);
+            statement.setString(3, shard.toString());
+            statement.setString(4, node);
+            statement.executeUpdate();
+        }
+    }
+
+    private void forgetOldRuns(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "delete from job_run where finished_at < now() - make_interval(days => ?)")) {
+            statement.setInt(1, keepDays);
+            statement.executeUpdate();
+        }
+    }
+}
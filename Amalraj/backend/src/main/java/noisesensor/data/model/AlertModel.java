@@ -0,0 +1,44 @@
+package noisesensor.data.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@With
+@AllArgsConstructor
+@NoArgsConstructor
+@Setter
+@Getter
+// An alert of a sensor being raised or cleared, see AlertService
+@Table(name = "alert")
+@Entity
+public class AlertModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(columnDefinition = "UUID", updatable = false, nullable = false)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sensor_id")
+    private SensorModel sensor;
+
+    // AlertWindow.Rule
+    @Column(name = "rule")
+    private String rule;
+
+    @Column(name = "raised")
+    private boolean raised;
+
+    // Time of the reading that raised or cleared it
+    @Column(name = "timestamp")
+    private LocalDateTime timestamp;
+
+    @Column(name = "noise_LAeq")
+    private float noise_LAeq;
+
+    // The threshold level or the rolling baseline the reading was compared with
+    @Column(name = "reference")
+    private float reference;
+}
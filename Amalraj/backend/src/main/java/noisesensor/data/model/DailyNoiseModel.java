@@ -11,6 +11,7 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @Setter
 @Getter
+// (sensor_id, date) is unique, see SchemaMigrations
 @Table(name = "daily_noise")
 @Entity
 public class DailyNoiseModel {
@@ -34,4 +35,15 @@ public class DailyNoiseModel {
 
     @Column(name = "noise_LAmin")
     private float noise_LAmin;
+
+    // Number of readings and sum of their LAeq energy, so checkpoints can be added up
+    @Column(name = "samples", columnDefinition = "bigint not null default 0")
+    private long samples;
+
+    @Column(name = "energy_sum", columnDefinition = "double precision not null default 0")
+    private double energy_sum;
+
+    // LAeq readings per 1 dB bin, see LevelHistogram
+    @Column(name = "histogram", columnDefinition = "integer[]")
+    private int[] histogram;
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package noisesensor.data.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.Value;
+
+// Readings of one sensor accumulated since the last checkpoint, added to the
+// aggregate row of the period starting at periodStart; not an entity.
+@Value
+public class LevelDelta {
+    UUID sensorId;
+    LocalDateTime periodStart;
+
+    long samples;
+    double energySum;
+    float noise_LAmax;
+    float noise_LAmin;
+    int[] histogram;
+}
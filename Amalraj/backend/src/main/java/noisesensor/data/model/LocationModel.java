@@ -11,6 +11,7 @@ import java.util.UUID;
 @Getter
 @Table(name = "location")
 @Entity
+@Cacheable
 public class LocationModel {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
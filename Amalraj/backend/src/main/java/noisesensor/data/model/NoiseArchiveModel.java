@@ -0,0 +1,40 @@
+package noisesensor.data.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@With
+@AllArgsConstructor
+@NoArgsConstructor
+@Setter
+@Getter
+// One compressed block of a sensor's raw readings per day, see GorillaCodec.
+// (sensor_id, block_start) is unique, see SchemaMigrations
+@Table(name = "noise_archive")
+@Entity
+public class NoiseArchiveModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(columnDefinition = "UUID", updatable = false, nullable = false)
+    private UUID id;
+
+    @ManyToOne
+    @JoinColumn(name = "sensor_id")
+    private SensorModel sensor;
+
+    // Start of the block's day and its last reading
+    @Column(name = "block_start")
+    private LocalDateTime block_start;
+
+    @Column(name = "block_end")
+    private LocalDateTime block_end;
+
+    @Column(name = "readings")
+    private int readings;
+
+    @Column(name = "data", columnDefinition = "bytea")
+    private byte[] data;
+}
@@ -0,0 +1,17 @@
+package noisesensor.data.model;
+
+import lombok.Value;
+
+// One bucket of an aggregated range query; not an entity.
+// index is the bucket position counted from the start of the requested range.
+@Value
+public class NoiseBucket {
+    long index;
+
+    float noise_LAeq;
+    float noise_LAmax;
+    float noise_LAmin;
+
+    long samples;
+    int[] histogram;
+}
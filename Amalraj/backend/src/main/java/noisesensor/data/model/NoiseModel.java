@@ -3,7 +3,6 @@ package noisesensor.data.model;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.util.UUID;
 import java.time.LocalDateTime;
 
 @With
@@ -11,13 +10,19 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Setter
 @Getter
-@Table(name = "noise")
+// Readings are append-only and arrive in time order: a sequential id keeps inserts at the right edge
+// of the primary key, and timestamp has a BRIN index (see SchemaMigrations) instead of a B-tree.
+@Table(name = "noise", indexes = {
+        @Index(name = "noise_sensor_timestamp_idx", columnList = "sensor_id, timestamp")
+})
 @Entity
 public class NoiseModel {
+    // Ids are taken from the sequence 100 at a time, not generated per row
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(columnDefinition = "UUID", updatable = false, nullable = false)
-    private UUID id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "noise_seq")
+    @SequenceGenerator(name = "noise_seq", sequenceName = "noise_seq", allocationSize = 100)
+    @Column(updatable = false, nullable = false)
+    private Long id;
 
     @ManyToOne
     @JoinColumn(name = "sensor_id")
@@ -0,0 +1,91 @@
+package noisesensor.data.model;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+// Stored resolutions of noise data, from the finest to the coarsest.
+// Every tier above RAW is an aggregate table derived from the tier below it.
+public enum Resolution {
+    RAW(Duration.ofSeconds(1), "noise", "timestamp"),
+    HOUR(Duration.ofHours(1), "hourly_noise", "hour_start"),
+    DAY(Duration.ofDays(1), "daily_noise", "date"),
+    WEEK(Duration.ofDays(7), "weekly_noise", "week_start"),
+    // Months have no fixed length, so this tier never answers a Duration step
+    MONTH(null, "monthly_noise", "month_start");
+
+    private final Duration duration;
+    private final String table;
+    private final String periodColumn;
+
+    Resolution(Duration duration, String table, String periodColumn) {
+        this.duration = duration;
+        this.table = table;
+        this.periodColumn = periodColumn;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getPeriodColumn() {
+        return periodColumn;
+    }
+
+    // Start of the period of this tier containing 'time'
+    public LocalDateTime periodStart(LocalDateTime time) {
+        switch (this) {
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case DAY:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            case WEEK:
+                return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            default:
+                return time.truncatedTo(ChronoUnit.SECONDS);
+        }
+    }
+
+    public LocalDateTime nextPeriod(LocalDateTime periodStart) {
+        return this == MONTH ? periodStart.plusMonths(1) : periodStart.plus(duration);
+    }
+
+    // Start of the first period at or after 'time'
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime start = periodStart(time);
+        return start.equals(time) ? start : nextPeriod(start);
+    }
+
+    public Resolution finer() {
+        return this == RAW ? RAW : values()[ordinal() - 1];
+    }
+
+    // A resolution can answer a query when every bucket is made of whole rows of it
+    public boolean satisfies(Duration step, LocalDateTime from) {
+        if (duration == null) {
+            return false;
+        }
+        if (step.getSeconds() % duration.getSeconds() != 0) {
+            return false;
+        }
+        return periodStart(from).equals(from);
+    }
+
+    public static Resolution coarsestFor(Duration step, LocalDateTime from) {
+        Resolution[] values = values();
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (values[i].satisfies(step, from)) {
+                return values[i];
+            }
+        }
+        return RAW;
+    }
+}
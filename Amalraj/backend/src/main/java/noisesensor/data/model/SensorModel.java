@@ -13,6 +13,7 @@ import java.util.UUID;
 @Getter
 @Table(name = "sensor")
 @Entity
+@Cacheable
 public class SensorModel {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
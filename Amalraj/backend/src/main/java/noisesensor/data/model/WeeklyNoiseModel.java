@@ -0,0 +1,48 @@
+package noisesensor.data.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+import java.time.LocalDate;
+
+@With
+@AllArgsConstructor
+@NoArgsConstructor
+@Setter
+@Getter
+// (sensor_id, week_start) is unique, see SchemaMigrations
+@Table(name = "weekly_noise")
+@Entity
+public class WeeklyNoiseModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(columnDefinition = "UUID", updatable = false, nullable = false)
+    private UUID id;
+
+    @ManyToOne
+    @JoinColumn(name = "sensor_id")
+    private SensorModel sensor;
+
+    @Column(name = "week_start")
+    private LocalDate week_start;
+
+    @Column(name = "noise_LAeq")
+    private float noise_LAeq;
+
+    @Column(name = "noise_LAmax")
+    private float noise_LAmax;
+
+    @Column(name = "noise_LAmin")
+    private float noise_LAmin;
+
+    @Column(name = "samples", columnDefinition = "bigint not null default 0")
+    private long samples;
+
+    @Column(name = "energy_sum", columnDefinition = "double precision not null default 0")
+    private double energy_sum;
+
+    // LAeq readings per 1 dB bin, see LevelHistogram
+    @Column(name = "histogram", columnDefinition = "integer[]")
+    private int[] histogram;
+}
@@ -0,0 +1,33 @@
+package noisesensor.data.repository;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import noisesensor.data.model.AlertModel;
+import noisesensor.data.routing.ReadSessions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@ApplicationScoped
+public class AlertRepository implements PanacheRepository<AlertModel> {
+    @Override
+    public EntityManager getEntityManager() {
+        return ReadSessions.entityManager(AlertModel.class);
+    }
+
+    // Latest alerts since 'from', of every sensor when sensorId is null
+    public List<AlertModel> findSince(LocalDateTime from, UUID sensorId, int limit) {
+        String query = "from AlertModel a where a.timestamp >= :from"
+                + (sensorId != null ? " and a.sensor.id = :sensor" : "") + " order by a.timestamp desc";
+        TypedQuery<AlertModel> typed = getEntityManager().createQuery(query, AlertModel.class)
+                .setParameter("from", from)
+                .setMaxResults(limit);
+        if (sensorId != null) {
+            typed.setParameter("sensor", sensorId);
+        }
+        return typed.getResultList();
+    }
+}
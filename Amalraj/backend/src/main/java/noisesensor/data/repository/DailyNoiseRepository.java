@@ -2,13 +2,21 @@ package noisesensor.data.repository;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
 import noisesensor.data.model.DailyNoiseModel;
+import noisesensor.data.routing.ReadSessions;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 @ApplicationScoped
 public class DailyNoiseRepository implements PanacheRepository<DailyNoiseModel> {
+    @Override
+    public EntityManager getEntityManager() {
+        return ReadSessions.entityManager(DailyNoiseModel.class);
+    }
+
     public DailyNoiseModel findByUuid(UUID id){
         return find("id", id).firstResult();
     }
@@ -17,7 +25,50 @@ public class DailyNoiseRepository implements PanacheRepository<DailyNoiseModel>
         delete("id", id);
     }
 
-    public void deleteOlderThan(LocalDateTime minusDays) {
-        delete("date < ?1", minusDays.toLocalDate());
+    public List<DailyNoiseModel> findBySensorAndDateRange(UUID sensorId, LocalDate from, LocalDate to) {
+        return getEntityManager().createQuery(
+                "from DailyNoiseModel where sensor.id = ?1 and date >= ?2 and date <= ?3 order by date",
+                DailyNoiseModel.class)
+                .setParameter(1, sensorId)
+                .setParameter(2, from)
+                .setParameter(3, to)
+                .getResultList();
+    }
+
+    // (date, sensor_id) of the days in [from, to) whose raw readings are not all counted in their daily row,
+    // ordered by date. Rows written before samples were counted have 0 and show up here too.
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findMissing(LocalDate from, LocalDate to) {
+        return getEntityManager().createNativeQuery(
+                "select cast(n.timestamp as date) as day, n.sensor_id from noise n "
+                + "left join daily_noise d on d.sensor_id = n.sensor_id and d.date = cast(n.timestamp as date) "
+                + "where n.timestamp >= :from and n.timestamp < :to "
+                + "group by day, n.sensor_id, d.samples "
+                + "having d.samples is null or d.samples < count(*) "
+                + "order by day")
+                .setParameter("from", from.atStartOfDay())
+                .setParameter("to", to.atStartOfDay())
+                .getResultList();
+    }
+
+    // (sensor_id, date, samples, energy_sum, LAmax, LAmin, histogram) of every row since 'from'
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findSumsSince(LocalDate from) {
+        return getEntityManager().createNativeQuery(
+                "select d.sensor_id, d.date, d.samples, d.energy_sum, d.noise_LAmax, d.noise_LAmin, d.histogram "
+                + "from daily_noise d where d.date >= :from")
+                .setParameter("from", from)
+                .getResultList();
+    }
+
+    // (sensor_id, latitude, longitude, LAeq) of every sensor aggregated for 'date'
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findLevelsWithLocation(LocalDate date) {
+        return getEntityManager().createNativeQuery(
+                "select d.sensor_id, l.latitude, l.longitude, d.noise_LAeq "
+                + "from daily_noise d join sensor s on s.id = d.sensor_id join location l on l.id = s.location_id "
+                + "where d.date = :date")
+                .setParameter("date", date)
+                .getResultList();
     }
 }
@@ -2,21 +2,49 @@ package noisesensor.data.repository;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import noisesensor.data.model.LocationModel;
+import noisesensor.data.routing.ReadSessions;
+import org.hibernate.jpa.HibernateHints;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @ApplicationScoped
 public class LocationRepository implements PanacheRepository<LocationModel> {
+    // Ids per 'in' list, far below the bind parameter limit of Postgres
+    static final int IN_CHUNK = 1000;
+
+    @Override
+    public EntityManager getEntityManager() {
+        return ReadSessions.entityManager(LocationModel.class);
+    }
+
     public LocationModel findByUuid(UUID id){
-        return find("id", id).firstResult();
+        return id == null ? null : getEntityManager().find(LocationModel.class, id);
     }
 
     public LocationModel findBySensorCommunityLocationId(Integer sensor_community_location_id){
-        return find("sensor_community_location_id", sensor_community_location_id).firstResult();
+        return find("sensor_community_location_id", sensor_community_location_id)
+                .withHint(HibernateHints.HINT_CACHEABLE, true).firstResult();
     }
-    
+
+    // Locations of many Sensor.Community ids, one query per IN_CHUNK ids instead of one per location
+    public Map<Integer, LocationModel> findBySensorCommunityLocationIds(List<Integer> ids) {
+        Map<Integer, LocationModel> locations = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += IN_CHUNK) {
+            List<Integer> chunk = new ArrayList<>(ids.subList(i, Math.min(ids.size(), i + IN_CHUNK)));
+            for (LocationModel location : list("sensor_community_location_id in ?1", chunk)) {
+                locations.put(location.getSensor_community_location_id(), location);
+            }
+        }
+        return locations;
+    }
+
     public void deleteByUuid(UUID id){
         delete("id", id);
     }
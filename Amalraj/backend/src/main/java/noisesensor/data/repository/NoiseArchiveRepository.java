@@ -0,0 +1,47 @@
+package noisesensor.data.repository;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import noisesensor.data.model.NoiseArchiveModel;
+import noisesensor.data.routing.ReadSessions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@ApplicationScoped
+public class NoiseArchiveRepository implements PanacheRepository<NoiseArchiveModel> {
+    @Override
+    public EntityManager getEntityManager() {
+        return ReadSessions.entityManager(NoiseArchiveModel.class);
+    }
+
+    // Archiving a day again replaces its blocks
+    public void upsertBlock(UUID sensorId, LocalDateTime start, LocalDateTime end, int readings, byte[] data) {
+        getEntityManager().createNativeQuery(
+                "insert into noise_archive (id, sensor_id, block_start, block_end, readings, data) "
+                + "values (gen_random_uuid(), :sensor, :start, :end, :readings, :data) "
+                + "on conflict (sensor_id, block_start) do update set block_end = excluded.block_end, "
+                + "readings = excluded.readings, data = excluded.data")
+                .setParameter("sensor", sensorId)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .setParameter("readings", readings)
+                .setParameter("data", data)
+                .executeUpdate();
+    }
+
+    // Encoded blocks of a sensor overlapping [from, to), in time order
+    @SuppressWarnings("unchecked")
+    public List<byte[]> findBlocks(UUID sensorId, LocalDateTime from, LocalDateTime to) {
+        return getEntityManager().createNativeQuery(
+                "select a.data from noise_archive a "
+                + "where a.sensor_id = :sensor and a.block_end >= :from and a.block_start < :to "
+                + "order by a.block_start")
+                .setParameter("sensor", sensorId)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+}
@@ -2,22 +2,22 @@ package noisesensor.data.repository;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.transaction.Transactional;
+import jakarta.persistence.EntityManager;
+import noisesensor.data.model.NoiseBucket;
 import noisesensor.data.model.NoiseModel;
 import noisesensor.data.model.SensorModel;
+import noisesensor.data.routing.ReadSessions;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class NoiseRepository implements PanacheRepository<NoiseModel> {
-    public NoiseModel findByUuid(UUID id){
-        return find("id", id).firstResult();
-    }
-
-    public void deleteByUuid(UUID id){
-        delete("id", id);
+    @Override
+    public EntityManager getEntityManager() {
+        return ReadSessions.entityManager(NoiseModel.class);
     }
 
     public List<NoiseModel> findBySensorAndDateRange(SensorModel sensor, LocalDateTime startOfDay,
@@ -25,8 +25,135 @@ public class NoiseRepository implements PanacheRepository<NoiseModel> {
         return list("sensor = ?1 and timestamp >= ?2 and timestamp <= ?3", sensor, startOfDay, endOfDay);
     }
 
-    @Transactional
-    public void deleteOlderThan(LocalDateTime minusDays) {
-        delete("timestamp < ?1", minusDays);
+    // Timestamp of the oldest reading kept, null without readings
+    public LocalDateTime findOldestTimestamp() {
+        return getEntityManager().createQuery("select min(n.timestamp) from NoiseModel n", LocalDateTime.class)
+                .getSingleResult();
+    }
+
+    public NoiseModel findLatest(SensorModel sensor) {
+        return find("sensor = ?1 and timestamp is not null order by timestamp desc", sensor).firstResult();
+    }
+
+    public NoiseModel findLatest(UUID sensorId) {
+        return getEntityManager().createQuery(
+                "from NoiseModel where sensor.id = ?1 and timestamp is not null order by timestamp desc", NoiseModel.class)
+                .setParameter(1, sensorId)
+                .setMaxResults(1)
+                .getResultStream().findFirst().orElse(null);
+    }
+
+    // (epoch second, LAeq, LAmax, LAmin) of a sensor's readings in [from, to), in time order
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findReadings(UUID sensorId, LocalDateTime from, LocalDateTime to) {
+        return getEntityManager().createNativeQuery(
+                "select extract(epoch from n.timestamp), n.noise_LAeq, n.noise_LAmax, n.noise_LAmin from noise n "
+                + "where n.sensor_id = :sensor and n.timestamp >= :from and n.timestamp < :to order by n.timestamp")
+                .setParameter("sensor", sensorId)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    // (sensor_id, source, epoch second, LAeq, LAmax, LAmin) rows, streamed without creating entities
+    @SuppressWarnings("unchecked")
+    public Stream<Object[]> streamReadingsSince(LocalDateTime since) {
+        return getEntityManager().createNativeQuery(
+                "select n.sensor_id, s.source, extract(epoch from n.timestamp), n.noise_LAeq, n.noise_LAmax, n.noise_LAmin "
+                + "from noise n join sensor s on s.id = n.sensor_id "
+                + "where n.timestamp >= :since order by n.timestamp")
+                .setParameter("since", since)
+                .setHint("org.hibernate.fetchSize", 5000)
+                .getResultStream();
+    }
+
+    // (sensor_id, epoch second, LAeq, LAmax, LAmin) rows of [from, to) grouped per sensor in time order, streamed
+    @SuppressWarnings("unchecked")
+    public Stream<Object[]> streamReadingsPerSensor(LocalDateTime from, LocalDateTime to) {
+        return getEntityManager().createNativeQuery(
+                "select n.sensor_id, extract(epoch from n.timestamp), n.noise_LAeq, n.noise_LAmax, n.noise_LAmin "
+                + "from noise n where n.timestamp >= :from and n.timestamp < :to order by n.sensor_id, n.timestamp")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setHint("org.hibernate.fetchSize", 5000)
+                .getResultStream();
+    }
+
+    // (sensor_id, country, epoch second, LAeq, latitude, longitude) of the latest reading
+    // of every sensor since 'since'
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findLatestPerSensorSince(LocalDateTime since) {
+        return getEntityManager().createNativeQuery(
+                "select distinct on (n.sensor_id) n.sensor_id, l.country, extract(epoch from n.timestamp), n.noise_LAeq, "
+                + "l.latitude, l.longitude "
+                + "from noise n join sensor s on s.id = n.sensor_id left join location l on l.id = s.location_id "
+                + "where n.timestamp >= :since order by n.sensor_id, n.timestamp desc")
+                .setParameter("since", since)
+                .getResultList();
+    }
+
+    // (sensor_id, country, LAeq energy sum, count, newest epoch second) of every sensor over [from, to)
+    @SuppressWarnings("unchecked")
+    public List<Object[]> sumEnergyPerSensor(LocalDateTime from, LocalDateTime to) {
+        return getEntityManager().createNativeQuery(
+                "select n.sensor_id, l.country, sum(power(10, n.noise_LAeq / 10.0)), count(*), "
+                + "max(extract(epoch from n.timestamp)) "
+                + "from noise n join sensor s on s.id = n.sensor_id left join location l on l.id = s.location_id "
+                + "where n.timestamp >= :from and n.timestamp < :to group by n.sensor_id, l.country")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    public List<NoiseBucket> findBuckets(UUID sensorId, LocalDateTime from, LocalDateTime to, long stepSeconds) {
+        return findBuckets(sensorId, from, from, to, stepSeconds);
+    }
+
+    // Buckets of stepSeconds counted from 'origin', aggregated by the database
+    @SuppressWarnings("unchecked")
+    public List<NoiseBucket> findBuckets(UUID sensorId, LocalDateTime origin, LocalDateTime from, LocalDateTime to,
+            long stepSeconds) {
+        List<Object[]> rows = getEntityManager().createNativeQuery(
+                "select floor(extract(epoch from (n.timestamp - :origin)) / :step) as bucket, "
+                + "10 * log(avg(power(10, n.noise_LAeq / 10.0))), max(n.noise_LAmax), min(n.noise_LAmin), count(*), "
+                + "histogram_of(n.noise_LAeq) "
+                + "from noise n "
+                + "where n.sensor_id = :sensor and n.timestamp >= :from and n.timestamp < :to "
+                + "group by bucket order by bucket")
+                .setParameter("sensor", sensorId)
+                .setParameter("origin", origin)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setParameter("step", stepSeconds)
+                .getResultList();
+        return rows.stream().map(NoiseRepository::toBucket).toList();
+    }
+
+    static NoiseBucket toBucket(Object[] row) {
+        return new NoiseBucket(((Number) row[0]).longValue(),
+                ((Number) row[1]).floatValue(),
+                ((Number) row[2]).floatValue(),
+                ((Number) row[3]).floatValue(),
+                ((Number) row[4]).longValue(),
+                toHistogram(row[5]));
+    }
+
+    // Integer arrays come back as int[], Integer[] or java.sql.Array depending on the driver path
+    public static int[] toHistogram(Object value) {
+        try {
+            if (value instanceof java.sql.Array array) {
+                value = array.getArray();
+            }
+        } catch (java.sql.SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        if (value instanceof Integer[] boxed) {
+            int[] counts = new int[boxed.length];
+            for (int i = 0; i < boxed.length; i++) {
+                counts[i] = boxed[i] != null ? boxed[i] : 0;
+            }
+            return counts;
+        }
+        return (int[]) value;
     }
 }
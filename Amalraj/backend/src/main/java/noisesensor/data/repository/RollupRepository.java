@@ -0,0 +1,178 @@
+package noisesensor.data.repository;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import noisesensor.data.model.LevelDelta;
+import noisesensor.data.model.NoiseBucket;
+import noisesensor.data.model.Resolution;
+import noisesensor.data.routing.ReadSessions;
+import noisesensor.utils.Shard;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Operations shared by the aggregate tiers (hourly_noise, daily_noise, weekly_noise, monthly_noise).
+// They have the same columns apart from the period one, see Resolution.
+@ApplicationScoped
+public class RollupRepository {
+
+    // Energy mean of a group of aggregate rows, rows written before samples existed fall back to their LAeq
+    private static final String LAEQ_OF_ROWS = "case when sum(t.samples) > 0 "
+            + "then 10 * log(sum(t.energy_sum) / sum(t.samples)) "
+            + "else 10 * log(avg(power(10, t.noise_LAeq / 10.0))) end";
+
+    @Inject
+    EntityManager entityManager;
+
+    // Adds checkpointed readings to the rows of a tier, in one JDBC batch.
+    // The sums are added in the database, so concurrent writers of a row do not overwrite each other.
+    public void addDeltas(Resolution tier, List<LevelDelta> deltas) {
+        String table = tier.getTable();
+        String column = tier.getPeriodColumn();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "insert into " + table + " (id, sensor_id, " + column + ", noise_LAeq, noise_LAmax, noise_LAmin, "
+                    + "samples, energy_sum, histogram) "
+                    + "values (gen_random_uuid(), ?, ?, 10 * log(? / ?), ?, ?, ?, ?, ?) "
+                    + "on conflict (sensor_id, " + column + ") do update set "
+                    + "noise_LAeq = 10 * log((" + table + ".energy_sum + excluded.energy_sum) "
+                    + "/ (" + table + ".samples + excluded.samples)), "
+                    + "noise_LAmax = greatest(" + table + ".noise_LAmax, excluded.noise_LAmax), "
+                    + "noise_LAmin = least(" + table + ".noise_LAmin, excluded.noise_LAmin), "
+                    + "samples = " + table + ".samples + excluded.samples, "
+                    + "energy_sum = " + table + ".energy_sum + excluded.energy_sum, "
+                    + "histogram = histogram_add(" + table + ".histogram, excluded.histogram)")) {
+                for (LevelDelta delta : deltas) {
+                    statement.setObject(1, delta.getSensorId());
+                    statement.setObject(2, periodValue(tier, delta.getPeriodStart()));
+                    statement.setDouble(3, delta.getEnergySum());
+                    statement.setDouble(4, delta.getSamples());
+                    statement.setFloat(5, delta.getNoise_LAmax());
+                    statement.setFloat(6, delta.getNoise_LAmin());
+                    statement.setLong(7, delta.getSamples());
+                    statement.setDouble(8, delta.getEnergySum());
+                    statement.setArray(9, connection.createArrayOf("integer", boxed(delta.getHistogram())));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    // Recomputes the 'target' rows of the period starting at periodStart from the 'source' tier, for every sensor
+    public int rollup(Resolution source, Resolution target, LocalDateTime periodStart) {
+        return rollup(source, target, periodStart, Shard.ALL);
+    }
+
+    // Same for the sensors of one shard
+    public int rollup(Resolution source, Resolution target, LocalDateTime periodStart, Shard shard) {
+        String column = target.getPeriodColumn();
+        Query query = entityManager.createNativeQuery(
+                "insert into " + target.getTable() + " (id, sensor_id, " + column + ", noise_LAeq, noise_LAmax, "
+                + "noise_LAmin, samples, energy_sum, histogram) "
+                + "select gen_random_uuid(), t.sensor_id, :period, " + LAEQ_OF_ROWS + ", "
+                + "max(t.noise_LAmax), min(t.noise_LAmin), sum(t.samples), sum(t.energy_sum), "
+                + "histogram_sum(t.histogram) "
+                + "from " + source.getTable() + " t "
+                + "where t." + source.getPeriodColumn() + " >= :from and t." + source.getPeriodColumn() + " < :to "
+                + (shard.count() > 1 ? "and t.sensor_id between :lowest and :highest " : "")
+                + "group by t.sensor_id "
+                + "on conflict (sensor_id, " + column + ") do update set noise_LAeq = excluded.noise_LAeq, "
+                + "noise_LAmax = excluded.noise_LAmax, noise_LAmin = excluded.noise_LAmin, "
+                + "samples = excluded.samples, energy_sum = excluded.energy_sum, histogram = excluded.histogram")
+                .setParameter("period", periodValue(target, periodStart))
+                .setParameter("from", periodValue(source, periodStart))
+                .setParameter("to", periodValue(source, target.nextPeriod(periodStart)));
+        if (shard.count() > 1) {
+            query.setParameter("lowest", shard.lowest());
+            query.setParameter("highest", shard.highest());
+        }
+        return query.executeUpdate();
+    }
+
+    // Recomputes the HOUR or DAY rows of the periods starting in [from, to) from the raw readings, replacing them.
+    // Limited to 'sensorIds' unless null.
+    public int recomputeFromNoise(Resolution tier, List<UUID> sensorIds, LocalDateTime from, LocalDateTime to) {
+        String column = tier.getPeriodColumn();
+        String period = tier == Resolution.HOUR ? "date_trunc('hour', n.timestamp)" : "cast(n.timestamp as date)";
+        Query query = entityManager.createNativeQuery(
+                "insert into " + tier.getTable() + " (id, sensor_id, " + column + ", noise_LAeq, noise_LAmax, "
+                + "noise_LAmin, samples, energy_sum, histogram) "
+                + "select gen_random_uuid(), n.sensor_id, " + period + " as period, "
+                + "10 * log(avg(power(10, n.noise_LAeq / 10.0))), max(n.noise_LAmax), min(n.noise_LAmin), count(*), "
+                + "sum(power(10, n.noise_LAeq / 10.0)), histogram_of(n.noise_LAeq) "
+                + "from noise n "
+                + "where n.timestamp >= :from and n.timestamp < :to "
+                + (sensorIds != null ? "and n.sensor_id in (:sensors) " : "")
+                + "group by n.sensor_id, period "
+                + "on conflict (sensor_id, " + column + ") do update set noise_LAeq = excluded.noise_LAeq, "
+                + "noise_LAmax = excluded.noise_LAmax, noise_LAmin = excluded.noise_LAmin, "
+                + "samples = excluded.samples, energy_sum = excluded.energy_sum, histogram = excluded.histogram")
+                .setParameter("from", from)
+                .setParameter("to", to);
+        if (sensorIds != null) {
+            query.setParameter("sensors", sensorIds);
+        }
+        return query.executeUpdate();
+    }
+
+    // Buckets of stepSeconds counted from 'origin', over the tier rows whose period starts in [from, to)
+    @SuppressWarnings("unchecked")
+    public List<NoiseBucket> findBuckets(Resolution tier, UUID sensorId, LocalDateTime origin, LocalDateTime from,
+            LocalDateTime to, long stepSeconds) {
+        String column = "t." + tier.getPeriodColumn();
+        List<Object[]> rows = ReadSessions.orElse(entityManager).createNativeQuery(
+                "select floor(extract(epoch from (cast(" + column + " as timestamp) - :origin)) / :step) as bucket, "
+                + LAEQ_OF_ROWS + ", max(t.noise_LAmax), min(t.noise_LAmin), count(*), histogram_sum(t.histogram) "
+                + "from " + tier.getTable() + " t "
+                + "where t.sensor_id = :sensor and " + column + " >= :from and " + column + " < :to "
+                + "group by bucket order by bucket")
+                .setParameter("sensor", sensorId)
+                .setParameter("origin", origin)
+                .setParameter("from", periodValue(tier, from))
+                .setParameter("to", periodValue(tier, to))
+                .setParameter("step", stepSeconds)
+                .getResultList();
+        return rows.stream().map(NoiseRepository::toBucket).toList();
+    }
+
+    // (period start, LAeq, LAmax, LAmin, histogram) of the rows of a sensor whose period starts in [from, to), in order
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findRows(Resolution tier, UUID sensorId, LocalDateTime from, LocalDateTime to) {
+        String column = "t." + tier.getPeriodColumn();
+        return ReadSessions.orElse(entityManager).createNativeQuery(
+                "select cast(" + column + " as timestamp), t.noise_LAeq, t.noise_LAmax, t.noise_LAmin, t.histogram "
+                + "from " + tier.getTable() + " t "
+                + "where t.sensor_id = :sensor and " + column + " >= :from and " + column + " < :to "
+                + "order by " + column)
+                .setParameter("sensor", sensorId)
+                .setParameter("from", periodValue(tier, from))
+                .setParameter("to", periodValue(tier, to))
+                .getResultList();
+    }
+
+    public int deleteOlderThan(Resolution tier, LocalDateTime cutoff) {
+        return entityManager.createNativeQuery(
+                "delete from " + tier.getTable() + " where " + tier.getPeriodColumn() + " < :cutoff")
+                .setParameter("cutoff", periodValue(tier, cutoff))
+                .executeUpdate();
+    }
+
+    private static Integer[] boxed(int[] counts) {
+        Integer[] boxed = new Integer[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            boxed[i] = counts[i];
+        }
+        return boxed;
+    }
+
+    // Hourly rows are keyed by a timestamp, coarser ones by a date
+    static Object periodValue(Resolution tier, LocalDateTime time) {
+        return tier == Resolution.HOUR || tier == Resolution.RAW ? time : time.toLocalDate();
+    }
+}
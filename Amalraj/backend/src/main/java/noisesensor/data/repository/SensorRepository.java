@@ -2,22 +2,47 @@ package noisesensor.data.repository;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import noisesensor.data.model.SensorModel;
+import noisesensor.data.routing.ReadSessions;
+import org.hibernate.jpa.HibernateHints;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @ApplicationScoped
 public class SensorRepository implements PanacheRepository<SensorModel> {
+    // Inside @ReadOnly calls this is the session on the read datasource
+    @Override
+    public EntityManager getEntityManager() {
+        return ReadSessions.entityManager(SensorModel.class);
+    }
+
+    // Sensors and locations are in the second-level cache, a lookup by id does not reach the database
     public SensorModel findByUuid(UUID id){
-        return find("id", id).firstResult();
+        return id == null ? null : getEntityManager().find(SensorModel.class, id);
     }
 
+    // Cached query, invalidated by any write to the sensor table
     public SensorModel findBySensorCommunitySensorId(int sensorId){
-        return find("sensor_community_sensor_id", sensorId).firstResult();
+        return find("sensor_community_sensor_id", sensorId).withHint(HibernateHints.HINT_CACHEABLE, true).firstResult();
     }
-    
+
+    public Map<Integer, SensorModel> findBySensorCommunitySensorIds(List<Integer> ids) {
+        Map<Integer, SensorModel> sensors = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += LocationRepository.IN_CHUNK) {
+            List<Integer> chunk = new ArrayList<>(ids.subList(i, Math.min(ids.size(), i + LocationRepository.IN_CHUNK)));
+            for (SensorModel sensor : list("sensor_community_sensor_id in ?1", chunk)) {
+                sensors.put(sensor.getSensor_community_sensor_id(), sensor);
+            }
+        }
+        return sensors;
+    }
+
     @Transactional
     public void deleteByUuid(UUID id){
         delete("id", id);
@@ -30,7 +55,8 @@ public class SensorRepository implements PanacheRepository<SensorModel> {
         return sensor;
     }
 
+    // Locations in the same query instead of one select per sensor
     public List<SensorModel> findAllSensors() {
-        return listAll();
+        return find("from SensorModel s left join fetch s.location").list();
     }
 }
@@ -0,0 +1,16 @@
+package noisesensor.data.routing;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import jakarta.interceptor.InterceptorBinding;
+
+// Repository reads inside the annotated method go to the read datasource (see ReadOnlyInterceptor).
+// Only for methods that never write: the read connection is read-only.
+@InterceptorBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnly {
+}
@@ -0,0 +1,45 @@
+package noisesensor.data.routing;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.agroal.DataSource;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.SessionFactory;
+
+// Routes the repository reads of the outermost @ReadOnly call to a read-only Hibernate session on a
+// connection of the "read" datasource, opened on first use (see ReadSessions). The session shares the
+// session factory, so the second-level cache stays the same; read sessions only read from it.
+// The read datasource is not enlisted in transactions, it runs in auto-commit next to the primary.
+@ReadOnly
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class ReadOnlyInterceptor {
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    @DataSource("read")
+    AgroalDataSource readDataSource;
+
+    // Off: everything stays on the primary datasource
+    @ConfigProperty(name = "noisesensor.datasource.read.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @AroundInvoke
+    Object route(InvocationContext context) throws Exception {
+        if (!enabled || ReadSessions.isActive()) {
+            return context.proceed();
+        }
+        ReadSessions.Scope scope = ReadSessions.open(sessionFactory, readDataSource);
+        try {
+            return context.proceed();
+        } finally {
+            scope.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package noisesensor.data.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.hibernate.orm.panache.Panache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+// The session on the read datasource of the current @ReadOnly call, if any.
+// Repositories get their EntityManager from here, so reads route without changing their callers.
+// The session is opened by the first repository call, a @ReadOnly call answered from memory takes no connection.
+public final class ReadSessions {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private ReadSessions() {
+    }
+
+    public static EntityManager entityManager(Class<?> entity) {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.session() : Panache.getEntityManager(entity);
+    }
+
+    public static EntityManager orElse(EntityManager primary) {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.session() : primary;
+    }
+
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    static Scope open(SessionFactory sessionFactory, AgroalDataSource dataSource) {
+        Scope scope = new Scope(sessionFactory, dataSource);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    // One @ReadOnly call, from the interceptor's entry to its exit
+    static final class Scope implements AutoCloseable {
+
+        private final SessionFactory sessionFactory;
+        private final AgroalDataSource dataSource;
+        private Connection connection;
+        private Session session;
+
+        private Scope(SessionFactory sessionFactory, AgroalDataSource dataSource) {
+            this.sessionFactory = sessionFactory;
+            this.dataSource = dataSource;
+        }
+
+        Session session() {
+            if (session == null) {
+                try {
+                    connection = dataSource.getConnection();
+                    connection.setReadOnly(true);
+                } catch (SQLException e) {
+                    throw new PersistenceException("No connection of the read datasource", e);
+                }
+                session = sessionFactory.withOptions()
+                        .connection(connection)
+                        .autoJoinTransactions(false)
+                        .flushMode(FlushMode.MANUAL)
+                        .openSession();
+                session.setDefaultReadOnly(true);
+                // Entities read from a lagging replica are not put in the shared second-level cache,
+                // where writes on the primary would find them; cached ones are still read
+                session.setCacheMode(CacheMode.GET);
+            }
+            return session;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            CURRENT.remove();
+            try {
+                if (session != null) {
+                    session.close();
+                }
+            } finally {
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+        }
+    }
+}
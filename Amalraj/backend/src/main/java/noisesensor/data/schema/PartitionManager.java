@@ -0,0 +1,139 @@
+package noisesensor.data.schema;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import noisesensor.data.model.Resolution;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+// Dated partitions of the partitioned tables (see SchemaMigrations): raw readings per day, daily rows per month.
+// Partitions are created ahead of time and retention drops whole partitions instead of deleting rows.
+// Rows outside every dated partition go to the table's default partition.
+@ApplicationScoped
+public class PartitionManager {
+
+    // Partitioned tier -> period of one partition
+    static final Map<Resolution, Resolution> PARTITIONS = Map.of(
+            Resolution.RAW, Resolution.DAY,
+            Resolution.DAY, Resolution.MONTH);
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Inject
+    EntityManager entityManager;
+
+    @ConfigProperty(name = "noisesensor.partitions.days-ahead", defaultValue = "7")
+    int daysAhead;
+
+    void onStart(@Observes @Priority(2) StartupEvent event) {
+        createAhead();
+    }
+
+    @Scheduled(cron = "0 30 0 * * ?") // Every day at 0:30, before the daily aggregation
+    void scheduledCreateAhead() {
+        createAhead();
+    }
+
+    // Partitions from the oldest row in a default partition (at most a year back) up to daysAhead from now
+    public void createAhead() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.toLocalDate().plusDays(daysAhead).atStartOfDay();
+        PARTITIONS.forEach((tier, period) -> {
+            LocalDateTime from = oldestDefaultRow(tier);
+            if (from == null || from.isAfter(now)) {
+                from = now;
+            } else if (from.isBefore(now.minusYears(1))) {
+                from = now.minusYears(1);
+            }
+            LocalDateTime start = period.periodStart(from);
+            for (; !start.isAfter(until); start = period.nextPeriod(start)) {
+                create(tier, start);
+            }
+        });
+    }
+
+    // Creates the partition of 'tier' starting at periodStart unless it exists, moving its rows out of the default one
+    @Transactional
+    void create(Resolution tier, LocalDateTime periodStart) {
+        String table = tier.getTable();
+        String partition = partitionName(tier, periodStart);
+        // Another node may be creating the same partition
+        SchemaMigrations.lock(entityManager, partition);
+        if (exists(partition)) {
+            return;
+        }
+        String column = tier.getPeriodColumn();
+        String from = literal(periodStart);
+        String to = literal(PARTITIONS.get(tier).nextPeriod(periodStart));
+        String range = column + " >= " + from + " and " + column + " < " + to;
+        execute("create table " + partition + " (like " + table + " including defaults)");
+        execute("insert into " + partition + " select * from " + table + "_default where " + range);
+        execute("delete from " + table + "_default where " + range);
+        execute("alter table " + table + " attach partition " + partition + " for values from (" + from + ") to (" + to + ")");
+    }
+
+    // Drops the partitions of 'tier' entirely before 'cutoff', and the default partition's rows before it.
+    // Rows in the partition holding the cutoff stay until the whole partition has expired.
+    @Transactional
+    public int dropBefore(Resolution tier, LocalDateTime cutoff) {
+        Resolution period = PARTITIONS.get(tier);
+        int dropped = 0;
+        for (String partition : partitions(tier)) {
+            LocalDateTime start = LocalDate.parse(partition.substring(partition.length() - 8), SUFFIX).atStartOfDay();
+            if (!period.nextPeriod(start).isAfter(cutoff)) {
+                execute("drop table " + partition);
+                dropped++;
+            }
+        }
+        execute("delete from " + tier.getTable() + "_default where " + tier.getPeriodColumn() + " < " + literal(cutoff));
+        return dropped;
+    }
+
+    static String partitionName(Resolution tier, LocalDateTime periodStart) {
+        return tier.getTable() + "_p" + periodStart.format(SUFFIX);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> partitions(Resolution tier) {
+        return entityManager.createNativeQuery(
+                "select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid "
+                + "join pg_class p on p.oid = i.inhparent where p.relname = :table and c.relname like :prefix")
+                .setParameter("table", tier.getTable())
+                .setParameter("prefix", tier.getTable() + "\\_p%")
+                .getResultList();
+    }
+
+    private boolean exists(String table) {
+        return !entityManager.createNativeQuery("select 1 from pg_class where relname = :table")
+                .setParameter("table", table)
+                .getResultList().isEmpty();
+    }
+
+    @Transactional
+    LocalDateTime oldestDefaultRow(Resolution tier) {
+        Object oldest = entityManager.createNativeQuery(
+                "select cast(min(" + tier.getPeriodColumn() + ") as timestamp) from " + tier.getTable() + "_default")
+                .getSingleResult();
+        return oldest instanceof java.sql.Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) oldest;
+    }
+
+    private void execute(String statement) {
+        entityManager.createNativeQuery(statement).executeUpdate();
+    }
+
+    // Bounds are midnight, so the same literal works for timestamp and date columns
+    private static String literal(LocalDateTime time) {
+        return "'" + time.toLocalDate() + "'";
+    }
+}
@@ -0,0 +1,121 @@
+package noisesensor.data.schema;
+
+import java.util.List;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import noisesensor.data.cluster.JobLeases;
+import noisesensor.utils.LevelHistogram;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+// Schema changes Hibernate's 'update' generation cannot express.
+// Every statement is idempotent and runs at startup, before the other startup observers,
+// unless startup migrations are off (production, where a one-off run applies them).
+@ApplicationScoped
+public class SchemaMigrations {
+
+    static final List<String> STATEMENTS = List.of(
+            // One aggregate per sensor and day, required by the upsert of the daily aggregation
+            "delete from daily_noise a using daily_noise b "
+            + "where a.sensor_id = b.sensor_id and a.date = b.date and a.id < b.id",
+            // Raw and daily rows are range partitioned on their time column, see PartitionManager.
+            // Existing tables are converted once, their rows land in the default partition
+            // and are moved to dated partitions when those are created.
+            toPartitioned("noise", "timestamp"),
+            toPartitioned("daily_noise", "date"),
+            // Raw readings used to have random UUID ids, existing rows get numbers from the sequence
+            "create sequence if not exists noise_seq increment by 100",
+            "do $$ begin "
+            + "if exists (select 1 from information_schema.columns "
+            + "where table_name = 'noise' and column_name = 'id' and data_type = 'uuid') then "
+            + "alter table noise alter column id type bigint using nextval('noise_seq'); "
+            + "end if; end $$",
+            "create index if not exists noise_sensor_timestamp_idx on noise (sensor_id, timestamp)",
+            "drop index if exists noise_timestamp_idx",
+            "create index if not exists noise_timestamp_brin_idx on noise using brin (timestamp)",
+            "create unique index if not exists daily_noise_sensor_date_idx on daily_noise (sensor_id, date)",
+            // Same for the other rollup tiers, their upserts conflict on these
+            "create unique index if not exists hourly_noise_sensor_hour_idx on hourly_noise (sensor_id, hour_start)",
+            "create unique index if not exists weekly_noise_sensor_week_idx on weekly_noise (sensor_id, week_start)",
+            "create unique index if not exists monthly_noise_sensor_month_idx on monthly_noise (sensor_id, month_start)",
+            // Archive blocks used to start at their first reading, a day archived again could get a second block.
+            // The block with the most readings of a day is kept and starts at the day.
+            "delete from noise_archive a using noise_archive b where a.sensor_id = b.sensor_id "
+            + "and date_trunc('day', a.block_start) = date_trunc('day', b.block_start) "
+            + "and (a.readings < b.readings or (a.readings = b.readings and a.id < b.id))",
+            "update noise_archive set block_start = date_trunc('day', block_start) "
+            + "where block_start <> date_trunc('day', block_start)",
+            "create unique index if not exists noise_archive_sensor_start_idx on noise_archive (sensor_id, block_start)",
+            "create index if not exists alert_timestamp_idx on alert (timestamp)",
+            // Parts of scheduled job runs done by a node, see JobLeases
+            "create table if not exists job_run (job varchar(64), period varchar(32), shard varchar(16), "
+            + "node varchar(128), finished_at timestamp, primary key (job, period, shard))",
+            // LevelHistogram in SQL: histograms are added bin by bin, histogram_of counts raw LAeq readings
+            "create or replace function histogram_add(a integer[], b integer[]) returns integer[] "
+            + "language sql immutable as $$ select case when a is null then b when b is null then a else array("
+            + "select coalesce(a[i], 0) + coalesce(b[i], 0) "
+            + "from generate_series(1, greatest(cardinality(a), cardinality(b))) i order by i) end $$",
+            "create or replace aggregate histogram_sum(integer[]) (sfunc = histogram_add, stype = integer[])",
+            // histogram_of collects a group's levels and bins them once at the end: adding each level to the
+            // array in SQL cost about 200 us per reading (see AggregationScaleTest)
+            "create or replace function histogram_of_levels(levels real[]) returns integer[] "
+            + "language plpgsql immutable parallel safe as $$ declare "
+            + "h integer[] := array_fill(0, array[" + LevelHistogram.BINS + "]); level real; bin integer; top integer := -1; "
+            + "begin foreach level in array levels loop if level is not null then "
+            + "bin := least(greatest(floor(level), 0), " + (LevelHistogram.BINS - 1) + "); "
+            + "h[bin + 1] := h[bin + 1] + 1; top := greatest(top, bin); end if; end loop; "
+            + "if top < 0 then return null; end if; return h[1 : top + 1]; end $$",
+            "create or replace aggregate histogram_of(real) (sfunc = array_append, stype = real[], "
+            + "combinefunc = array_cat, finalfunc = histogram_of_levels, parallel = safe)",
+            "drop function if exists histogram_add_level(integer[], real)"
+    );
+
+    @Inject
+    EntityManager entityManager;
+
+    @ConfigProperty(name = "noisesensor.schema.migrate-at-startup", defaultValue = "true")
+    boolean migrateAtStartup;
+
+    // Advisory lock held until the end of the current transaction
+    public static void lock(EntityManager entityManager, String name) {
+        entityManager.createNativeQuery("select pg_advisory_xact_lock(:namespace, :key)")
+                .setParameter("namespace", JobLeases.LOCK_NAMESPACE)
+                .setParameter("key", JobLeases.lockKey(name))
+                .getSingleResult();
+    }
+
+    // A partitioned table's primary key has to include the partition column
+    private static String toPartitioned(String table, String column) {
+        return "do $$ begin "
+                + "if exists (select 1 from pg_class where relname = '" + table + "' and relkind = 'r') then "
+                + "alter table " + table + " rename to " + table + "_unpartitioned; "
+                + "create table " + table + " (like " + table + "_unpartitioned including defaults) "
+                + "partition by range (" + column + "); "
+                + "alter table " + table + " add primary key (id, " + column + "); "
+                + "alter table " + table + " add foreign key (sensor_id) references sensor (id); "
+                + "create table " + table + "_default partition of " + table + " default; "
+                + "insert into " + table + " select * from " + table + "_unpartitioned; "
+                + "drop table " + table + "_unpartitioned; "
+                + "end if; end $$";
+    }
+
+    void onStart(@Observes @Priority(1) StartupEvent event) {
+        if (migrateAtStartup) {
+            migrate();
+        }
+    }
+
+    @Transactional
+    void migrate() {
+        // Nodes starting together migrate one after the other
+        lock(entityManager, "schema");
+        for (String statement : STATEMENTS) {
+            entityManager.createNativeQuery(statement).executeUpdate();
+        }
+    }
+}
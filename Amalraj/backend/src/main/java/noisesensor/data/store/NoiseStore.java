@@ -0,0 +1,68 @@
+package noisesensor.data.store;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import noisesensor.data.model.NoiseBucket;
+import noisesensor.data.model.NoiseModel;
+import noisesensor.data.model.Resolution;
+import noisesensor.data.model.SensorModel;
+import noisesensor.data.repository.NoiseRepository;
+import noisesensor.data.schema.PartitionManager;
+import noisesensor.domain.service.HotWindowService;
+
+// Raw readings in the partitioned noise table: the writes and reads of single readings,
+// without the services handling NoiseModel entities or rows themselves.
+// append needs the caller's transaction. Times are naive, converted to epoch seconds as UTC.
+@ApplicationScoped
+public class NoiseStore {
+
+    @Inject
+    NoiseRepository noiseRepository;
+
+    @Inject
+    PartitionManager partitionManager;
+
+    public void append(UUID sensorId, LocalDateTime timestamp, float laeq, float lamax, float lamin) {
+        NoiseModel noise = new NoiseModel();
+        noise.setSensor(noiseRepository.getEntityManager().getReference(SensorModel.class, sensorId));
+        noise.setTimestamp(timestamp);
+        noise.setNoise_LAeq(laeq);
+        noise.setNoise_LAmax(lamax);
+        noise.setNoise_LAmin(lamin);
+        noiseRepository.persist(noise);
+    }
+
+    // Readings of a sensor in [from, to), in time order
+    public void scan(UUID sensorId, LocalDateTime from, LocalDateTime to, ReadingConsumer consumer) {
+        for (Object[] row : noiseRepository.findReadings(sensorId, from, to)) {
+            consumer.accept(((Number) row[0]).longValue(), ((Number) row[1]).floatValue(),
+                    ((Number) row[2]).floatValue(), ((Number) row[3]).floatValue());
+        }
+    }
+
+    // Passes the latest reading of a sensor to 'consumer', false when there is none
+    public boolean latest(UUID sensorId, ReadingConsumer consumer) {
+        NoiseModel noise = noiseRepository.findLatest(sensorId);
+        if (noise == null) {
+            return false;
+        }
+        consumer.accept(HotWindowService.epochSecond(noise.getTimestamp()), noise.getNoise_LAeq(),
+                noise.getNoise_LAmax(), noise.getNoise_LAmin());
+        return true;
+    }
+
+    // Buckets of stepSeconds counted from 'origin' over [from, to), see NoiseBucket
+    public List<NoiseBucket> findBuckets(UUID sensorId, LocalDateTime origin, LocalDateTime from, LocalDateTime to,
+            long stepSeconds) {
+        return noiseRepository.findBuckets(sensorId, origin, from, to, stepSeconds);
+    }
+
+    // Drops the partitions of the days before 'cutoff', returns how many were dropped
+    public int dropBefore(LocalDateTime cutoff) {
+        return partitionManager.dropBefore(Resolution.RAW, cutoff);
+    }
+}
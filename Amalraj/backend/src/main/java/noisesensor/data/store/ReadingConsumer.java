@@ -0,0 +1,7 @@
+package noisesensor.data.store;
+
+// Receives readings from NoiseStore.scan and latest, one call per reading, without creating objects
+@FunctionalInterface
+public interface ReadingConsumer {
+    void accept(long epochSecond, float laeq, float lamax, float lamin);
+}
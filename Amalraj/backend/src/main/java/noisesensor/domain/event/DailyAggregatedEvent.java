@@ -0,0 +1,11 @@
+package noisesensor.domain.event;
+
+import java.time.LocalDate;
+
+import lombok.Value;
+
+// Fired once the daily aggregates of a date have been written
+@Value
+public class DailyAggregatedEvent {
+    LocalDate date;
+}
@@ -0,0 +1,21 @@
+package noisesensor.domain.event;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.Value;
+
+// Fired for every reading accepted by the device ingest or the sensor.community import
+@Value
+public class ReadingEvent {
+    UUID sensorId;
+    String source;
+    String country;
+    Float latitude;
+    Float longitude;
+    LocalDateTime timestamp;
+
+    float noise_LAeq;
+    float noise_LAmax;
+    float noise_LAmin;
+}
@@ -0,0 +1,86 @@
+package noisesensor.domain.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import noisesensor.metrics.NoiseMetrics;
+import noisesensor.utils.Logger;
+import noisesensor.utils.TokenBucket;
+
+// Admission control of device readings: a token bucket per sensor, so one device in a tight loop
+// is refused on its own, and a global one protecting the database from the whole fleet.
+// Buckets are taken with compare-and-set (see TokenBucket), full ones are forgotten every minute.
+@ApplicationScoped
+public class AdmissionService {
+
+    @Inject
+    NoiseMetrics noiseMetrics;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "noisesensor.admission.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "noisesensor.admission.sensor.rate", defaultValue = "1")
+    double sensorRate;
+
+    @ConfigProperty(name = "noisesensor.admission.sensor.burst", defaultValue = "10")
+    int sensorBurst;
+
+    @ConfigProperty(name = "noisesensor.admission.global.rate", defaultValue = "2000")
+    double globalRate;
+
+    @ConfigProperty(name = "noisesensor.admission.global.burst", defaultValue = "4000")
+    int globalBurst;
+
+    private final Map<UUID, TokenBucket> sensors = new ConcurrentHashMap<>();
+    private final Set<UUID> throttledSensors = ConcurrentHashMap.newKeySet();
+    private TokenBucket global;
+
+    @PostConstruct
+    void init() {
+        global = new TokenBucket(globalRate, globalBurst);
+        noiseMetrics.throttledSensors(throttledSensors::size);
+    }
+
+    // 0 when the reading may be handled, otherwise the nanoseconds the device should wait
+    public long admit(UUID sensorId) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        TokenBucket sensor = sensors.computeIfAbsent(sensorId, id -> new TokenBucket(sensorRate, sensorBurst));
+        long wait = sensor.tryAcquire(now);
+        if (wait > 0) {
+            noiseMetrics.throttled("sensor");
+            if (throttledSensors.add(sensorId)) {
+                logger.warn("Throttling readings of sensor ", sensorId);
+            }
+            return wait;
+        }
+        wait = global.tryAcquire(now);
+        if (wait > 0) {
+            // Refused for the fleet's load, the sensor keeps its token
+            sensor.release();
+            noiseMetrics.throttled("global");
+            return wait;
+        }
+        return 0;
+    }
+
+    @Scheduled(every = "1m")
+    void cleanup() {
+        long now = System.nanoTime();
+        sensors.values().removeIf(bucket -> bucket.isFull(now));
+        throttledSensors.clear();
+    }
+}
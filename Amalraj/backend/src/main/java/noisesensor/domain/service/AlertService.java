@@ -0,0 +1,233 @@
+package noisesensor.domain.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.exception.ConstraintViolationException;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.vertx.core.json.JsonObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import noisesensor.data.model.AlertModel;
+import noisesensor.data.model.SensorModel;
+import noisesensor.data.repository.AlertRepository;
+import noisesensor.data.routing.ReadOnly;
+import noisesensor.domain.event.ReadingEvent;
+import noisesensor.utils.AlertWindow;
+import noisesensor.utils.Logger;
+
+// Noise alerts of every sensor, evaluated as readings of the device ingest and the Sensor.Community
+// import arrive (see AlertWindow). The rules come from the configuration and apply to every sensor.
+// Raised and cleared alerts wait in a bounded queue and are inserted in batches, a reading never waits
+// for the database.
+@ApplicationScoped
+public class AlertService {
+
+    @Inject
+    AlertRepository alertRepository;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "noisesensor.alerts.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "noisesensor.alerts.threshold.level", defaultValue = "70")
+    float thresholdLevel;
+
+    @ConfigProperty(name = "noisesensor.alerts.threshold.minutes", defaultValue = "10")
+    int thresholdMinutes;
+
+    @ConfigProperty(name = "noisesensor.alerts.jump.delta", defaultValue = "15")
+    float jumpDelta;
+
+    @ConfigProperty(name = "noisesensor.alerts.jump.baseline-readings", defaultValue = "60")
+    int baselineReadings;
+
+    @ConfigProperty(name = "noisesensor.alerts.jump.min-baseline", defaultValue = "10")
+    int minBaseline;
+
+    @ConfigProperty(name = "noisesensor.alerts.queue-size", defaultValue = "10000")
+    int queueSize;
+
+    private record PendingAlert(UUID sensorId, AlertWindow.Rule rule, boolean raised, LocalDateTime timestamp,
+            float laeq, float reference) {
+    }
+
+    private AlertWindow.Rules rules;
+    private final Map<UUID, AlertWindow> windows = new ConcurrentHashMap<>();
+    private BlockingQueue<PendingAlert> pending;
+
+    @PostConstruct
+    void init() {
+        rules = new AlertWindow.Rules(thresholdLevel, thresholdMinutes * 60L, jumpDelta, baselineReadings, minBaseline);
+        pending = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    void onReading(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReadingEvent event) {
+        if (!enabled || event.getTimestamp() == null) {
+            return;
+        }
+        AlertWindow window = windows.computeIfAbsent(event.getSensorId(), id -> new AlertWindow(rules));
+        float laeq = event.getNoise_LAeq();
+        int transitions;
+        float baseline;
+        synchronized (window) {
+            transitions = window.add(HotWindowService.epochSecond(event.getTimestamp()), laeq);
+            baseline = window.baseline();
+        }
+        // Alerts change rarely, this is the only path that allocates
+        if (transitions != 0) {
+            if ((transitions & AlertWindow.THRESHOLD_RAISED) != 0) {
+                enqueue(event, AlertWindow.Rule.THRESHOLD, true, thresholdLevel);
+            }
+            if ((transitions & AlertWindow.THRESHOLD_CLEARED) != 0) {
+                enqueue(event, AlertWindow.Rule.THRESHOLD, false, thresholdLevel);
+            }
+            if ((transitions & AlertWindow.JUMP_RAISED) != 0) {
+                enqueue(event, AlertWindow.Rule.JUMP, true, baseline);
+            }
+            if ((transitions & AlertWindow.JUMP_CLEARED) != 0) {
+                enqueue(event, AlertWindow.Rule.JUMP, false, baseline);
+            }
+        }
+    }
+
+    private void enqueue(ReadingEvent event, AlertWindow.Rule rule, boolean raised, float reference) {
+        PendingAlert alert = new PendingAlert(event.getSensorId(), rule, raised, event.getTimestamp(),
+                event.getNoise_LAeq(), reference);
+        if (!pending.offer(alert)) {
+            logger.sampled(Logger.Level.WARN, "Alert queue full, dropped alert of sensor ", event.getSensorId());
+        }
+    }
+
+    @Scheduled(every = "${noisesensor.alerts.flush-interval:10s}")
+    void scheduledFlush() {
+        flush();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flush();
+    }
+
+    // Inserts the queued alerts in one transaction, JDBC batched
+    public synchronized int flush() {
+        List<PendingAlert> alerts = new ArrayList<>();
+        pending.drainTo(alerts);
+        if (alerts.isEmpty()) {
+            return 0;
+        }
+        try {
+            insert(alerts);
+        } catch (RuntimeException e) {
+            if (!isConstraintViolation(e)) {
+                requeue(alerts, e);
+                return 0;
+            }
+            // Alerts of sensors deleted meanwhile fail every retry: one by one, only those are dropped
+            return insertEach(alerts);
+        }
+        return alerts.size();
+    }
+
+    private int insertEach(List<PendingAlert> alerts) {
+        int stored = 0;
+        for (int i = 0; i < alerts.size(); i++) {
+            try {
+                insert(List.of(alerts.get(i)));
+                stored++;
+            } catch (RuntimeException e) {
+                if (!isConstraintViolation(e)) {
+                    requeue(alerts.subList(i, alerts.size()), e);
+                    break;
+                }
+                logger.sampled(Logger.Level.WARN, "Dropped alert of missing sensor ", alerts.get(i).sensorId());
+            }
+        }
+        return stored;
+    }
+
+    // A failure like a database outage: the alerts wait for the next flush, behind the ones queued meanwhile
+    private void requeue(List<PendingAlert> alerts, RuntimeException e) {
+        int dropped = 0;
+        for (PendingAlert alert : alerts) {
+            if (!pending.offer(alert)) {
+                dropped++;
+            }
+        }
+        logger.error("Storing " + alerts.size() + " alerts failed, retried at the next flush"
+                + (dropped > 0 ? ", " + dropped + " dropped with the queue full" : "") + ": " + e);
+    }
+
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Transactional
+    void insert(List<PendingAlert> alerts) {
+        for (PendingAlert pendingAlert : alerts) {
+            AlertModel alert = new AlertModel();
+            alert.setSensor(alertRepository.getEntityManager().getReference(SensorModel.class, pendingAlert.sensorId()));
+            alert.setRule(pendingAlert.rule().name());
+            alert.setRaised(pendingAlert.raised());
+            alert.setTimestamp(pendingAlert.timestamp());
+            alert.setNoise_LAeq(pendingAlert.laeq());
+            alert.setReference(pendingAlert.reference());
+            alertRepository.persist(alert);
+        }
+    }
+
+    // Alerts active right now, from memory
+    public List<JsonObject> active() {
+        List<JsonObject> active = new ArrayList<>();
+        windows.forEach((sensorId, window) -> {
+            synchronized (window) {
+                for (AlertWindow.Rule rule : AlertWindow.Rule.values()) {
+                    long raisedAt = window.raisedAt(rule);
+                    if (raisedAt >= 0) {
+                        JsonObject json = new JsonObject();
+                        json.put("sensor_id", sensorId.toString());
+                        json.put("rule", rule.name());
+                        json.put("since", HotWindowService.toLocalDateTime(raisedAt).toString());
+                        active.add(json);
+                    }
+                }
+            }
+        });
+        return active;
+    }
+
+    @ReadOnly
+    public List<JsonObject> history(LocalDateTime from, UUID sensorId, int limit) {
+        List<JsonObject> alerts = new ArrayList<>();
+        for (AlertModel alert : alertRepository.findSince(from, sensorId, limit)) {
+            JsonObject json = new JsonObject();
+            json.put("sensor_id", alert.getSensor().getId().toString());
+            json.put("rule", alert.getRule());
+            json.put("raised", alert.isRaised());
+            json.put("timestamp", alert.getTimestamp().toString());
+            json.put("noise_LAeq", alert.getNoise_LAeq());
+            json.put("reference", alert.getReference());
+            alerts.add(json);
+        }
+        return alerts;
+    }
+}
@@ -0,0 +1,139 @@
+package noisesensor.domain.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import noisesensor.data.model.SensorModel;
+import noisesensor.data.repository.NoiseArchiveRepository;
+import noisesensor.data.repository.NoiseRepository;
+import noisesensor.data.repository.SensorRepository;
+import noisesensor.data.routing.ReadOnly;
+import noisesensor.utils.GorillaCodec;
+import noisesensor.utils.Logger;
+
+import static noisesensor.errors.ErrorsCode.ERROR_404;
+
+// Raw readings outlive the raw retention as one compressed block per sensor and day (see GorillaCodec).
+// Days are archived right before their partition is dropped, and read back without creating entities.
+@ApplicationScoped
+public class ArchiveService {
+
+    @Inject
+    NoiseRepository noiseRepository;
+
+    @Inject
+    NoiseArchiveRepository noiseArchiveRepository;
+
+    @Inject
+    SensorRepository sensorRepository;
+
+    @Inject
+    DisplayService displayService;
+
+    @Inject
+    Logger logger;
+
+    // Archives every day with raw readings before 'date', each in its own transaction.
+    // Returns the first day that could not be archived, null when all were.
+    public LocalDate archiveBefore(LocalDate date) {
+        LocalDateTime oldest = findOldestTimestamp();
+        if (oldest == null) {
+            return null;
+        }
+        for (LocalDate day = oldest.toLocalDate(); day.isBefore(date); day = day.plusDays(1)) {
+            try {
+                long start = System.nanoTime();
+                int blocks = archiveDay(day);
+                logger.info("Archived " + blocks + " sensors for " + day + " in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            } catch (RuntimeException e) {
+                logger.error("Archiving " + day + " failed: " + e);
+                return day;
+            }
+        }
+        return null;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    int archiveDay(LocalDate day) {
+        int blocks = 0;
+        UUID sensorId = null;
+        GorillaCodec.Writer writer = null;
+        long last = 0;
+        try (Stream<Object[]> rows = noiseRepository.streamReadingsPerSensor(day.atStartOfDay(),
+                day.plusDays(1).atStartOfDay())) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                UUID rowSensor = (UUID) row[0];
+                long second = ((Number) row[1]).longValue();
+                if (!rowSensor.equals(sensorId)) {
+                    if (writer != null) {
+                        store(sensorId, day, last, writer);
+                        blocks++;
+                    }
+                    sensorId = rowSensor;
+                    writer = new GorillaCodec.Writer();
+                }
+                writer.add(second, ((Number) row[2]).floatValue(), ((Number) row[3]).floatValue(),
+                        ((Number) row[4]).floatValue());
+                last = second;
+            }
+        }
+        if (writer != null) {
+            store(sensorId, day, last, writer);
+            blocks++;
+        }
+        return blocks;
+    }
+
+    // Keyed on the day, not its first reading: archiving the day again after a late, earlier reading
+    // replaces the block instead of adding an overlapping one
+    private void store(UUID sensorId, LocalDate day, long last, GorillaCodec.Writer writer) {
+        noiseArchiveRepository.upsertBlock(sensorId, day.atStartOfDay(),
+                HotWindowService.toLocalDateTime(last), writer.size(), writer.toBytes());
+    }
+
+    // Archived readings of a sensor in [from, to)
+    @ReadOnly
+    public JsonObject archivedData(UUID id, LocalDateTime from, LocalDateTime to) {
+        SensorModel sensor = sensorRepository.findByUuid(id);
+        if (sensor == null) {
+            ERROR_404.throwException("Sensor not found: " + id);
+        }
+        long fromSecond = HotWindowService.epochSecond(from);
+        long toSecond = HotWindowService.epochSecond(to);
+
+        JsonArray noisesArray = new JsonArray();
+        for (byte[] block : noiseArchiveRepository.findBlocks(id, from, to)) {
+            GorillaCodec.Reader reader = new GorillaCodec.Reader(block);
+            while (reader.next()) {
+                if (reader.second() >= fromSecond && reader.second() < toSecond) {
+                    JsonObject noise = new JsonObject();
+                    noise.put("timestamp", HotWindowService.toLocalDateTime(reader.second()).toString());
+                    noise.put("noise_LAeq", reader.laeq());
+                    noise.put("noise_LAmax", reader.lamax());
+                    noise.put("noise_LAmin", reader.lamin());
+                    noisesArray.add(noise);
+                }
+            }
+        }
+
+        JsonObject json = new JsonObject();
+        json.put("id", sensor.getId().toString());
+        json.put("location", displayService.locationModelToJson(sensor.getLocation()));
+        json.put("source", sensor.getSource());
+        json.put("noises", noisesArray);
+        return json;
+    }
+
+    @Transactional
+    LocalDateTime findOldestTimestamp() {
+        return noiseRepository.findOldestTimestamp();
+    }
+}
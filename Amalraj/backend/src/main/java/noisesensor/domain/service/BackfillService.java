@@ -0,0 +1,195 @@
+package noisesensor.domain.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import noisesensor.data.model.Resolution;
+import noisesensor.data.repository.DailyNoiseRepository;
+import noisesensor.data.repository.NoiseRepository;
+import noisesensor.data.repository.RollupRepository;
+import noisesensor.metrics.NoiseMetrics;
+import noisesensor.utils.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+// Recomputes the hourly and daily aggregates of days whose raw readings are not all counted,
+// e.g. after a crash lost a checkpoint or the nightly job did not run.
+// Each chunk (one day, a batch of sensors) commits on its own, so an interrupted run resumes
+// with whatever is still missing the next time. Today and yesterday still receive readings
+// and are left to StreamingAggregationService.
+@ApplicationScoped
+public class BackfillService {
+
+    @Inject
+    NoiseRepository noiseRepository;
+
+    @Inject
+    DailyNoiseRepository dailyNoiseRepository;
+
+    @Inject
+    RollupRepository rollupRepository;
+
+    @Inject
+    NoiseMetrics noiseMetrics;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "noisesensor.backfill.threads", defaultValue = "4")
+    int threads;
+
+    @ConfigProperty(name = "noisesensor.backfill.sensors-per-chunk", defaultValue = "200")
+    int sensorsPerChunk;
+
+    record Chunk(LocalDate date, List<UUID> sensorIds) {
+    }
+
+    // Recomputes chunks in parallel, one pool for the application's lifetime
+    private ExecutorService pool;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "backfill-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+        pool.shutdown();
+        if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+            // Unfinished chunks are still missing, the next start backfills them
+            pool.shutdownNow();
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        CompletableFuture.runAsync(() -> backfill(null, lastClosedDay().plusDays(1))).exceptionally(e -> {
+            logger.error("Backfill failed: " + e);
+            return null;
+        });
+    }
+
+    // Backfills the days in [from, to), from the oldest raw reading when 'from' is null.
+    // Returns the first day still missing afterwards, null when every day is complete.
+    public synchronized LocalDate backfill(LocalDate from, LocalDate to) {
+        LocalDate last = lastClosedDay();
+        if (to.isAfter(last.plusDays(1))) {
+            to = last.plusDays(1);
+        }
+        if (from == null) {
+            LocalDateTime oldest = findOldestTimestamp();
+            if (oldest == null) {
+                return null;
+            }
+            from = oldest.toLocalDate();
+        }
+        if (!from.isBefore(to)) {
+            return null;
+        }
+
+        List<Chunk> chunks = chunks(findMissing(from, to));
+        if (chunks.isEmpty()) {
+            return null;
+        }
+        logger.info("Backfilling " + chunks.size() + " chunks between " + from + " and " + to);
+
+        long start = System.nanoTime();
+        Set<LocalDate> done = new TreeSet<>();
+        List<Future<?>> futures = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            futures.add(pool.submit(() -> recompute(chunk)));
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            try {
+                futures.get(i).get();
+                done.add(chunks.get(i).date());
+            } catch (Exception e) {
+                // Left missing, the next run picks it up again
+                logger.error("Backfill of " + chunks.get(i).date() + " failed: " + e);
+            }
+        }
+
+        // Weeks and months holding a recomputed day are rolled up again
+        Set<LocalDateTime> weeks = new TreeSet<>();
+        Set<LocalDateTime> months = new TreeSet<>();
+        for (LocalDate date : done) {
+            weeks.add(Resolution.WEEK.periodStart(date.atStartOfDay()));
+            months.add(Resolution.MONTH.periodStart(date.atStartOfDay()));
+        }
+        weeks.forEach(week -> rollup(Resolution.WEEK, week));
+        months.forEach(month -> rollup(Resolution.MONTH, month));
+
+        logger.info("Backfilled " + done.size() + " days in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        // Confirm against the database rather than trusting the chunks
+        List<Object[]> remaining = findMissing(from, to);
+        return remaining.isEmpty() ? null : StreamingAggregationService.toLocalDate(remaining.get(0)[0]);
+    }
+
+    // Missing (date, sensor) pairs grouped per day, in batches of sensorsPerChunk
+    List<Chunk> chunks(List<Object[]> missing) {
+        Map<LocalDate, List<UUID>> perDay = new LinkedHashMap<>();
+        for (Object[] row : missing) {
+            perDay.computeIfAbsent(StreamingAggregationService.toLocalDate(row[0]), d -> new ArrayList<>())
+                    .add((UUID) row[1]);
+        }
+        List<Chunk> chunks = new ArrayList<>();
+        perDay.forEach((date, sensors) -> {
+            for (int i = 0; i < sensors.size(); i += sensorsPerChunk) {
+                chunks.add(new Chunk(date, List.copyOf(sensors.subList(i, Math.min(i + sensorsPerChunk, sensors.size())))));
+            }
+        });
+        return chunks;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    void recompute(Chunk chunk) {
+        long started = System.nanoTime();
+        LocalDateTime start = chunk.date().atStartOfDay();
+        LocalDateTime end = start.plusDays(1);
+        rollupRepository.recomputeFromNoise(Resolution.HOUR, chunk.sensorIds(), start, end);
+        rollupRepository.recomputeFromNoise(Resolution.DAY, chunk.sensorIds(), start, end);
+        noiseMetrics.aggregation("backfill", "recompute", System.nanoTime() - started, chunk.sensorIds().size());
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    void rollup(Resolution tier, LocalDateTime periodStart) {
+        rollupRepository.rollup(Resolution.DAY, tier, periodStart);
+    }
+
+    @Transactional
+    List<Object[]> findMissing(LocalDate from, LocalDate to) {
+        return dailyNoiseRepository.findMissing(from, to);
+    }
+
+    @Transactional
+    LocalDateTime findOldestTimestamp() {
+        return noiseRepository.findOldestTimestamp();
+    }
+
+    private static LocalDate lastClosedDay() {
+        return LocalDate.now().minusDays(2);
+    }
+}
@@ -0,0 +1,53 @@
+package noisesensor.domain.service;
+
+import java.util.List;
+
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import noisesensor.data.model.LocationModel;
+import noisesensor.data.model.SensorModel;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+// Hit rates of the second-level cache regions, needs quarkus.hibernate-orm.statistics=true
+@ApplicationScoped
+public class CacheStatisticsService {
+
+    private static final String QUERY_REGION = "default-query-results-region";
+
+    private static final List<String> ENTITY_REGIONS = List.of(
+            SensorModel.class.getName(),
+            LocationModel.class.getName());
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    public JsonObject cacheStatistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+        JsonObject json = new JsonObject();
+        json.put("enabled", statistics.isStatisticsEnabled());
+        for (String region : ENTITY_REGIONS) {
+            json.put(region, regionToJson(statistics.getDomainDataRegionStatistics(region)));
+        }
+        json.put("queries", regionToJson(statistics.getQueryRegionStatistics(QUERY_REGION)));
+        // Statements sent to the database since startup, to compare against the hits
+        json.put("prepared_statements", statistics.getPrepareStatementCount());
+        return json;
+    }
+
+    private static JsonObject regionToJson(CacheRegionStatistics region) {
+        JsonObject json = new JsonObject();
+        if (region == null) {
+            return json;
+        }
+        long lookups = region.getHitCount() + region.getMissCount();
+        json.put("hits", region.getHitCount());
+        json.put("misses", region.getMissCount());
+        json.put("puts", region.getPutCount());
+        json.put("entries", region.getElementCountInMemory());
+        json.put("hit_rate", lookups == 0 ? null : (double) region.getHitCount() / lookups);
+        return json;
+    }
+}
@@ -2,84 +2,182 @@ package noisesensor.domain.service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import io.quarkus.scheduler.Scheduled;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-import noisesensor.data.model.SensorModel;
-import noisesensor.data.model.NoiseModel;
-import noisesensor.data.repository.SensorRepository;
-import noisesensor.data.repository.NoiseRepository;
-import noisesensor.data.model.DailyNoiseModel;
-import noisesensor.data.repository.DailyNoiseRepository;
+import noisesensor.data.cluster.JobLeases;
+import noisesensor.data.model.Resolution;
+import noisesensor.data.repository.RollupRepository;
+import noisesensor.data.schema.PartitionManager;
+import noisesensor.data.store.NoiseStore;
+import noisesensor.domain.event.DailyAggregatedEvent;
+import noisesensor.metrics.NoiseMetrics;
+import noisesensor.metrics.QueryBudget;
+import noisesensor.utils.Logger;
+import noisesensor.utils.Shard;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @ApplicationScoped
 public class DailyAggregationService {
     
     @Inject
-    SensorRepository sensorRepository;
+    NoiseStore noiseStore;
 
     @Inject
-    NoiseRepository noiseRepository;
-    
+    StreamingAggregationService streamingAggregationService;
+
+    @Inject
+    RollupRepository rollupRepository;
+
+    @Inject
+    BackfillService backfillService;
+
     @Inject
-    DailyNoiseRepository dailyNoiseRepository;
+    PartitionManager partitionManager;
+
+    @Inject
+    ArchiveService archiveService;
+
+    @Inject
+    JobLeases jobLeases;
+
+    @Inject
+    Event<DailyAggregatedEvent> dailyAggregatedEvent;
+
+    @Inject
+    NoiseMetrics noiseMetrics;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "noisesensor.retention.raw-days", defaultValue = "1")
+    int rawRetentionDays;
+
+    @ConfigProperty(name = "noisesensor.retention.hourly-days", defaultValue = "90")
+    int hourlyRetentionDays;
+
+    @ConfigProperty(name = "noisesensor.retention.daily-days", defaultValue = "400")
+    int dailyRetentionDays;
+
+    @ConfigProperty(name = "noisesensor.retention.weekly-days", defaultValue = "1825")
+    int weeklyRetentionDays;
+
+    @ConfigProperty(name = "noisesensor.retention.monthly-days", defaultValue = "0")
+    int monthlyRetentionDays;
     
     @Scheduled(cron = "0 0 1 * * ?") // Every day at 1 AM
-    @Transactional
     public void scheduledDailyData() {
-        aggregateDailyData();
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        // Every node flushes the readings it received, the rollups and the retention are done once
+        // for all nodes (see JobLeases), the rollups split by sensor range
+        closeDay(yesterday);
+        jobLeases.run("daily-rollup", yesterday.toString(), shard -> {
+            aggregateDailyData(yesterday, shard);
+            return true;
+        });
+        jobLeases.runOnce("daily-retention", yesterday.toString(), () -> {
+            retain(yesterday.atStartOfDay());
+            // Outside the closing transaction, the backfill commits its chunks on their own
+            deleteAggregatedNoise(yesterday.atStartOfDay());
+        });
     }
 
+    // Hourly and daily rows are maintained as readings arrive, closing a day only flushes what is left
     @Transactional
-    void aggregateDailyData() {
-        LocalDate yesterday = LocalDate.now().minusDays(1);
-        LocalDateTime startOfDay = yesterday.atStartOfDay();
-        LocalDateTime endOfDay = yesterday.atTime(23, 59, 59);
-        System.out.println("Aggregating daily data for date: " + yesterday);
-
-        List<SensorModel> sensors = sensorRepository.listAll();
-        
-        for (SensorModel sensor : sensors) {
-            // Gather hourly data for the sensor from yesterday
-            List<NoiseModel> hourlyData = noiseRepository.findBySensorAndDateRange(
-                sensor, startOfDay, endOfDay
-            );
-            
-            if (hourlyData.isEmpty()) continue;
-            
-            float avgLAeq = (float) hourlyData.stream()
-                .mapToDouble(NoiseModel::getNoise_LAeq)
-                .average()
-                .orElse(0.0);
-            
-            float maxLAmax = (float) hourlyData.stream()
-                .mapToDouble(NoiseModel::getNoise_LAmax)
-                .max()
-                .orElse(0.0);
-            
-            float minLAmin = (float) hourlyData.stream()
-                .mapToDouble(NoiseModel::getNoise_LAmin)
-                .min()
-                .orElse(0.0);
-            
-            // Create and persist the daily aggregation
-            DailyNoiseModel dailyNoise = new DailyNoiseModel();
-            dailyNoise.setSensor(sensor);
-            dailyNoise.setDate(yesterday);
-            dailyNoise.setNoise_LAeq(avgLAeq);
-            dailyNoise.setNoise_LAmax(maxLAmax);
-            dailyNoise.setNoise_LAmin(minLAmin);
-            
-            dailyNoiseRepository.persist(dailyNoise);
+    @QueryBudget(8)
+    void closeDay(LocalDate date) {
+        logger.info("Closing daily data for date: " + date);
+        int rows = streamingAggregationService.checkpoint();
+        streamingAggregationService.evictBefore(date);
+        logger.info("Flushed " + rows + " hourly and daily aggregates");
+        dailyAggregatedEvent.fire(new DailyAggregatedEvent(date));
+    }
+
+    // Weeks and months are rolled up from the daily rows, the ones holding 'date' are recomputed
+    @Transactional
+    @QueryBudget(4)
+    void aggregateDailyData(LocalDate date, Shard shard) {
+        LocalDateTime startOfDay = date.atStartOfDay();
+        for (Resolution tier : List.of(Resolution.WEEK, Resolution.MONTH)) {
+            long start = System.nanoTime();
+            int rolledUp = rollupRepository.rollup(Resolution.DAY, tier, tier.periodStart(startOfDay), shard);
+            noiseMetrics.aggregation("daily", "rollup_" + tier.name().toLowerCase(), System.nanoTime() - start, rolledUp);
+            logger.info("Rolled up " + rolledUp + " " + tier.getTable() + " rows of shard " + shard);
+        }
+    }
+
+    @Transactional
+    void retain(LocalDateTime startOfDay) {
+        long start = System.nanoTime();
+        applyRetention(startOfDay);
+        noiseMetrics.aggregation("daily", "retention", System.nanoTime() - start, 0);
+    }
+
+    // Every tier keeps its own number of days, 0 keeps a tier forever.
+    // Raw readings are handled by deleteAggregatedNoise.
+    void applyRetention(LocalDateTime startOfDay) {
+        retentionDays().forEach((tier, days) -> {
+            if (days <= 0 || tier == Resolution.RAW) {
+                return;
+            }
+            LocalDateTime cutoff = startOfDay.minusDays(days);
+            if (tier == Resolution.DAY) {
+                partitionManager.dropBefore(tier, cutoff);
+            } else {
+                rollupRepository.deleteOlderThan(tier, cutoff);
+            }
+        });
+    }
+
+    // Raw readings are only deleted once the days they belong to are aggregated and archived,
+    // days the backfill or the archive could not complete keep their readings until a later run does
+    void deleteAggregatedNoise(LocalDateTime startOfDay) {
+        if (rawRetentionDays <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = startOfDay.minusDays(rawRetentionDays);
+        LocalDate firstMissing = backfillService.backfill(null, cutoff.toLocalDate());
+        if (firstMissing != null && firstMissing.atStartOfDay().isBefore(cutoff)) {
+            logger.error("Keeping raw readings since " + firstMissing + ", their aggregates are incomplete");
+            cutoff = firstMissing.atStartOfDay();
         }
-        
-        // Delete noise data older than 1 day
-        noiseRepository.deleteOlderThan(startOfDay.minusDays(1));
+        long start = System.nanoTime();
+        LocalDate firstUnarchived = archiveService.archiveBefore(cutoff.toLocalDate());
+        noiseMetrics.aggregation("daily", "archive", System.nanoTime() - start, 0);
+        if (firstUnarchived != null) {
+            logger.error("Keeping raw readings since " + firstUnarchived + ", they are not archived");
+            cutoff = firstUnarchived.atStartOfDay();
+        }
+        int dropped = noiseStore.dropBefore(cutoff);
+        logger.info("Dropped " + dropped + " raw partitions before " + cutoff);
+    }
 
-        // Delete daily noise data older than 30 days
-        dailyNoiseRepository.deleteOlderThan(startOfDay.minusDays(30));
+    private Map<Resolution, Integer> retentionDays() {
+        Map<Resolution, Integer> days = new EnumMap<>(Resolution.class);
+        days.put(Resolution.RAW, rawRetentionDays);
+        days.put(Resolution.HOUR, hourlyRetentionDays);
+        days.put(Resolution.DAY, dailyRetentionDays);
+        days.put(Resolution.WEEK, weeklyRetentionDays);
+        days.put(Resolution.MONTH, monthlyRetentionDays);
+        return days;
+    }
+
+    // Recomputes the hours and the day of 'date' from the raw readings with grouped insert-selects,
+    // replacing their rows. Only meant for days that no longer receive readings.
+    @Transactional
+    public int reaggregate(LocalDate date) {
+        long start = System.nanoTime();
+        rollupRepository.recomputeFromNoise(Resolution.HOUR, null, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+        int rows = rollupRepository.recomputeFromNoise(Resolution.DAY, null, date.atStartOfDay(),
+                date.plusDays(1).atStartOfDay());
+        logger.info("Re-aggregated " + rows + " sensors for " + date + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return rows;
     }
 }
\ No newline at end of file
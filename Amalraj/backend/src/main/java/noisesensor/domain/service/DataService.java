@@ -2,18 +2,21 @@ package noisesensor.domain.service;
 
 import java.util.UUID;
 
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.vertx.core.json.JsonObject;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import noisesensor.common.api.request.DataRequest;
 import noisesensor.common.api.request.SubscribeRequest;
 import noisesensor.data.model.LocationModel;
-import noisesensor.data.model.NoiseModel;
 import noisesensor.data.model.SensorModel;
 import noisesensor.data.repository.LocationRepository;
-import noisesensor.data.repository.NoiseRepository;
 import noisesensor.data.repository.SensorRepository;
+import noisesensor.data.store.NoiseStore;
+import noisesensor.domain.event.ReadingEvent;
+import noisesensor.utils.Logger;
 
 @ApplicationScoped
 public class DataService {
@@ -25,7 +28,13 @@ public class DataService {
     LocationRepository locationRepository;
 
     @Inject
-    NoiseRepository noiseRepository;
+    NoiseStore noiseStore;
+
+    @Inject
+    Event<ReadingEvent> readingEvent;
+
+    @Inject
+    Logger logger;
     
     @Transactional
     public JsonObject registerSensor(SubscribeRequest request) {
@@ -48,23 +57,24 @@ public class DataService {
     }
 
     @Transactional
+    @WithSpan("ingest store")
     public boolean receiveData(DataRequest dataRequest) {
         // 1. Check if SensorModel and LocationModel exist
         SensorModel sensor = sensorRepository.findByUuid(dataRequest.getSensor_id());
         LocationModel location = locationRepository.findByUuid(dataRequest.getLocation_id());
         if (sensor == null || location == null) {
-            System.out.println("Sensor or location not found");
+            logger.sampled(Logger.Level.WARN, "Sensor or location not found: ", dataRequest.getSensor_id());
             return false;
         }
 
-        // 2. Create and persist NoiseModel
-        NoiseModel noise = new NoiseModel();
-        noise.setSensor(sensor);
-        noise.setTimestamp(dataRequest.getTimestamp());
-        noise.setNoise_LAeq(dataRequest.getNoise_LAeq());
-        noise.setNoise_LAmax(dataRequest.getNoise_LAmax());
-        noise.setNoise_LAmin(dataRequest.getNoise_LAmin());
-        noiseRepository.persist(noise);
+        // 2. Store the reading
+        noiseStore.append(sensor.getId(), dataRequest.getTimestamp(), dataRequest.getNoise_LAeq(),
+                dataRequest.getNoise_LAmax(), dataRequest.getNoise_LAmin());
+
+        // 3. Notify the in-memory consumers once the transaction commits
+        readingEvent.fire(new ReadingEvent(sensor.getId(), sensor.getSource(), location.getCountry(),
+                location.getLatitude(), location.getLongitude(), dataRequest.getTimestamp(),
+                dataRequest.getNoise_LAeq(), dataRequest.getNoise_LAmax(), dataRequest.getNoise_LAmin()));
 
         return true;
     }
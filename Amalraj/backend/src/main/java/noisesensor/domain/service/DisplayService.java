@@ -1,6 +1,7 @@
 package noisesensor.domain.service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.WeekFields;
 import java.util.List;
@@ -11,22 +12,51 @@ import io.vertx.core.json.*;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import noisesensor.data.model.*;
+import noisesensor.data.repository.DailyNoiseRepository;
+import noisesensor.data.repository.NoiseRepository;
+import noisesensor.data.repository.RollupRepository;
 import noisesensor.data.repository.SensorRepository;
+import noisesensor.data.routing.ReadOnly;
+import noisesensor.data.store.NoiseStore;
 import noisesensor.presentation.other.SensorCommunityFetch;
+import noisesensor.utils.LevelAccumulator;
+import noisesensor.utils.LevelHistogram;
+import noisesensor.utils.ReadingRingBuffer;
+import noisesensor.utils.Logger;
 
 @ApplicationScoped
 public class DisplayService {
 
+    // Format of the timestamp in recent data, parsed by DisplayResource
+    private static final DateTimeFormatter RECENT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     @Inject
     SensorRepository sensorRepository;
 
+    @Inject
+    NoiseStore noiseStore;
+
+    @Inject
+    DailyNoiseRepository dailyNoiseRepository;
+
+    @Inject
+    RollupRepository rollupRepository;
+
+    @Inject
+    HotWindowService hotWindowService;
+
+    @Inject
+    StreamingAggregationService streamingAggregationService;
+
     @Inject
     SensorCommunityFetch sensorCommunityFetch;
+
+    @Inject
+    Logger logger;
     
+    @ReadOnly
     public JsonObject dailyData(UUID id, LocalDate date) {
-        String newDate = date.format(DateTimeFormatter.ofPattern("yyyy MMMM d"));
-        String string = "We want the data of the day " + newDate;
-        System.out.println(string);
+        logger.debug("We want the data of the day ", date);
 
         SensorModel sensor = sensorRepository.findByUuid(id);
         JsonObject json = new JsonObject();
@@ -34,24 +64,44 @@ public class DisplayService {
         json.put("location", locationModelToJson(sensor.getLocation()));
         String source = sensor.getSource();
         json.put("source", source);
-        List<NoiseModel> noises = sensor.getNoises();
-        JsonArray noisesArray = new JsonArray();
-        for (NoiseModel noise : noises) {
-            if (noise.getTimestamp() != null && noise.getTimestamp().toLocalDate().isEqual(date)) {
-                noisesArray.add(noiseModelToJson(noise));
-            }
+
+        HotWindowService.Window window = hotWindowService.covering(id, date.atStartOfDay());
+        if (window != null) {
+            long start = HotWindowService.epochSecond(date.atStartOfDay());
+            long end = HotWindowService.epochSecond(date.plusDays(1).atStartOfDay());
+            json.put("noises", readingsToJson(window.getBuffer().between(start, end)));
+            return json;
         }
+
+        JsonArray noisesArray = new JsonArray();
+        noiseStore.scan(id, date.atStartOfDay(), date.plusDays(1).atStartOfDay(),
+                (second, laeq, lamax, lamin) -> noisesArray.add(readingToJson(second, laeq, lamax, lamin)));
         json.put("noises", noisesArray);
         return json;
     }
 
+    public JsonArray readingsToJson(ReadingRingBuffer.Slice readings) {
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < readings.size(); i++) {
+            array.add(readingToJson(readings.second(i), readings.laeq(i), readings.lamax(i), readings.lamin(i)));
+        }
+        return array;
+    }
+
+    public JsonObject readingToJson(long second, float laeq, float lamax, float lamin) {
+        JsonObject json = new JsonObject();
+        json.put("timestamp", HotWindowService.toLocalDateTime(second).toString());
+        json.put("noise_LAeq", laeq);
+        json.put("noise_LAmax", lamax);
+        json.put("noise_LAmin", lamin);
+        return json;
+    }
+
+    @ReadOnly
     public JsonObject weeklyData(UUID id, LocalDate date) {
         LocalDate monday = date.with(WeekFields.of(Locale.getDefault()).dayOfWeek(), 1);
         LocalDate sunday = monday.plusDays(6);
-        String newDate = monday.format(DateTimeFormatter.ofPattern("d MMMM"))
-                        + " to " + sunday.format(DateTimeFormatter.ofPattern("d MMM yyyy"));
-        String string = "We want the data of the week from " + newDate;
-        System.out.println(string);
+        logger.debug("We want the data of the week from ", monday);
 
         SensorModel sensor = sensorRepository.findByUuid(id);
         JsonObject json = new JsonObject();
@@ -60,25 +110,13 @@ public class DisplayService {
         String source = sensor.getSource();
         json.put("source", source);
 
-        List<DailyNoiseModel> noises = sensor.getDaily_noises();
-        JsonArray noisesArray = new JsonArray();
-        for (DailyNoiseModel noise : noises) {
-            if (noise.getDate() != null) {
-                LocalDate noiseDate = noise.getDate();
-                if ((noiseDate.isEqual(monday) || noiseDate.isAfter(monday)) &&
-                    (noiseDate.isEqual(sunday) || noiseDate.isBefore(sunday))) {
-                    noisesArray.add(dailyNoiseModelToJson(noise));
-                }
-            }
-        }
-        json.put("noises", noisesArray);
+        json.put("noises", daysToJson(id, monday, sunday));
         return json;
     }
 
+    @ReadOnly
     public JsonObject monthlyData(UUID id, LocalDate date) {
-        String newDate = date.format(DateTimeFormatter.ofPattern("MMMM yyyy"));
-        String string = "We want the data of the month " + newDate;
-        System.out.println(string);
+        logger.debug("We want the data of the month of ", date);
 
         SensorModel sensor = sensorRepository.findByUuid(id);
         JsonObject json = new JsonObject();
@@ -87,22 +125,74 @@ public class DisplayService {
         String source = sensor.getSource();
         json.put("source", source);
 
-        int month = date.getMonthValue();
-        int year = date.getYear();
-        List<DailyNoiseModel> noises = sensor.getDaily_noises();
+        json.put("noises", daysToJson(id, date.withDayOfMonth(1), date.withDayOfMonth(date.lengthOfMonth())));
+        return json;
+    }
+
+    // Daily rows of [first, last], today's row replaced by the running accumulator
+    private JsonArray daysToJson(UUID id, LocalDate first, LocalDate last) {
+        LocalDate today = LocalDate.now();
+        LevelAccumulator todaySoFar = streamingAggregationService.snapshot(id, today);
         JsonArray noisesArray = new JsonArray();
-        for (DailyNoiseModel noise : noises) {
-            if (noise.getDate() != null) {
-                LocalDate noiseDate = noise.getDate();
-                if (noiseDate.getMonthValue() == month && noiseDate.getYear() == year) {
-                    noisesArray.add(dailyNoiseModelToJson(noise));
-                }
+        for (DailyNoiseModel noise : dailyNoiseRepository.findBySensorAndDateRange(id, first, last)) {
+            if (todaySoFar != null && noise.getDate().isEqual(today)) {
+                continue;
             }
+            noisesArray.add(dailyNoiseModelToJson(noise));
+        }
+        if (todaySoFar != null && !today.isBefore(first) && !today.isAfter(last)) {
+            noisesArray.add(levelToJson(today, todaySoFar));
+        }
+        return noisesArray;
+    }
+
+    // One point per week of the year, read from the weekly rollups
+    @ReadOnly
+    public JsonObject yearlyData(UUID id, LocalDate date) {
+        logger.debug("We want the data of the year ", date.getYear());
+
+        SensorModel sensor = sensorRepository.findByUuid(id);
+        JsonObject json = new JsonObject();
+        json.put("id", sensor.getId().toString());
+        json.put("location", locationModelToJson(sensor.getLocation()));
+        json.put("source", sensor.getSource());
+
+        LocalDateTime from = Resolution.WEEK.periodStart(date.withDayOfYear(1).atStartOfDay());
+        LocalDateTime to = date.plusYears(1).withDayOfYear(1).atStartOfDay();
+        JsonArray noisesArray = new JsonArray();
+        for (Object[] row : rollupRepository.findRows(Resolution.WEEK, id, from, to)) {
+            JsonObject noise = new JsonObject();
+            noise.put("timestamp", StreamingAggregationService.toLocalDateTime(row[0]).toString());
+            noise.put("noise_LAeq", ((Number) row[1]).floatValue());
+            noise.put("noise_LAmax", ((Number) row[2]).floatValue());
+            noise.put("noise_LAmin", ((Number) row[3]).floatValue());
+            putStatisticalLevels(noise, LevelHistogram.of(NoiseRepository.toHistogram(row[4])));
+            noisesArray.add(noise);
+        }
+        json.put("noises", noisesArray);
+        return json;
+    }
+
+    // Today's aggregate so far, from the running accumulators
+    @ReadOnly
+    public JsonObject todayData(UUID id) {
+        SensorModel sensor = sensorRepository.findByUuid(id);
+        JsonObject json = new JsonObject();
+        json.put("id", sensor.getId().toString());
+        json.put("location", locationModelToJson(sensor.getLocation()));
+        json.put("source", sensor.getSource());
+
+        LocalDate today = LocalDate.now();
+        LevelAccumulator todaySoFar = streamingAggregationService.snapshot(id, today);
+        JsonArray noisesArray = new JsonArray();
+        if (todaySoFar != null) {
+            noisesArray.add(levelToJson(today, todaySoFar));
         }
         json.put("noises", noisesArray);
         return json;
     }
 
+    @ReadOnly
     public JsonObject allTimeData(UUID id) {
         SensorModel sensor = sensorRepository.findByUuid(id);
         return sensorModelToJson(sensor);
@@ -155,6 +245,29 @@ public class DisplayService {
         json.put("noise_LAeq", noise.getNoise_LAeq());
         json.put("noise_LAmax", noise.getNoise_LAmax());
         json.put("noise_LAmin", noise.getNoise_LAmin());
+        putStatisticalLevels(json, LevelHistogram.of(noise.getHistogram()));
+        return json;
+    }
+
+    // L10, L50 and L90: levels exceeded 10, 50 and 90 percent of the time, absent without a histogram
+    public void putStatisticalLevels(JsonObject json, LevelHistogram histogram) {
+        if (histogram.isEmpty()) {
+            return;
+        }
+        json.put("noise_L10", histogram.exceeded(10));
+        json.put("noise_L50", histogram.exceeded(50));
+        json.put("noise_L90", histogram.exceeded(90));
+    }
+
+    public JsonObject levelToJson(LocalDate date, LevelAccumulator level) {
+        JsonObject json = new JsonObject();
+        json.put("timestamp", date.atStartOfDay().toString());
+        json.put("noise_LAeq", level.getLaeq());
+        json.put("noise_LAmax", level.getMax());
+        json.put("noise_LAmin", level.getMin());
+        json.put("noise_L10", level.exceeded(10));
+        json.put("noise_L50", level.exceeded(50));
+        json.put("noise_L90", level.exceeded(90));
         return json;
     }
 
@@ -162,7 +275,7 @@ public class DisplayService {
         try {
             sensorCommunityFetch.fetchData(false);
         } catch (Exception e) {
-            System.err.println("Error in fetchData: " + e.getMessage());
+            logger.error("Error in fetchData: " + e.getMessage());
         }
         List<SensorModel> sensors = sensorRepository.findAllSensors();
         List<JsonObject> jsonSensors = sensors.stream()
@@ -186,26 +299,45 @@ public class DisplayService {
         return jsonSensors;
     }
 
+    // Not @ReadOnly: mostly answered from memory, and a Sensor.Community sensor waits for an HTTP call
     public JsonObject recentData(UUID id) {
+        // Device readings are pushed to us, so the hot window always has the latest one
+        HotWindowService.Window window = hotWindowService.get(id);
+        if (window != null && "nightingale".equals(window.getSource())) {
+            ReadingRingBuffer.Slice latest = window.getBuffer().latest();
+            if (!latest.isEmpty()) {
+                JsonObject json = new JsonObject();
+                json.put("timestamp", HotWindowService.toLocalDateTime(latest.second(0)).format(RECENT_FORMAT));
+                json.put("noise_LAeq", latest.laeq(0));
+                json.put("noise_LA_max", latest.lamax(0));
+                json.put("noise_LA_min", latest.lamin(0));
+                return json;
+            }
+        }
+
         String source = sensorRepository.findByUuid(id).getSource();
         if (source.equals("sensorcommunity")) {
             return recentDataSensorCommunity(id);
         } else if (source.equals("nightingale")) {
             return recentDataNightingale(id);
         } else {
-            System.out.println("Unknown sensor source: " + source);
+            logger.warn("Unknown sensor source: ", source);
             return null;
         }
     }
 
     private JsonObject recentDataNightingale(UUID id) {
-        SensorModel sensor = sensorRepository.findByUuid(id);
-        List<NoiseModel> noises = sensor.getNoises();
-        if (noises == null || noises.isEmpty()) {
-            System.out.println("No noise data found for sensor id: " + id);
-            JsonObject json = new JsonObject();
-            json.put("timestamp", java.time.LocalDateTime.now()
-                                        .format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        // Find the most recent noise entry
+        JsonObject json = new JsonObject();
+        boolean found = noiseStore.latest(id, (second, laeq, lamax, lamin) -> {
+            json.put("timestamp", HotWindowService.toLocalDateTime(second).format(RECENT_FORMAT));
+            json.put("noise_LAeq", laeq);
+            json.put("noise_LA_max", lamax);
+            json.put("noise_LA_min", lamin);
+        });
+        if (!found) {
+            logger.sampled(Logger.Level.INFO, "No noise data found for sensor id: ", id);
+            json.put("timestamp", java.time.LocalDateTime.now().format(RECENT_FORMAT));
             json.put("noise_LAeq", 40);
             json.put("noise_LA_max", 50);
             json.put("noise_LA_min", 30);
@@ -213,29 +345,15 @@ public class DisplayService {
 
             //return null;
         }
-        // Find the most recent noise entry
-        NoiseModel recentNoise = noises.stream()
-                .filter(noise -> noise.getTimestamp() != null)
-                .max((n1, n2) -> n1.getTimestamp().compareTo(n2.getTimestamp()))
-                .orElse(null);
-        if (recentNoise == null) {
-            System.out.println("No valid noise timestamps found for sensor id: " + id);
-            return null;
-        }
-        JsonObject json = new JsonObject();
-        json.put("timestamp", recentNoise.getTimestamp().toString());
-        json.put("noise_LAeq", recentNoise.getNoise_LAeq());
-        json.put("noise_LA_max", recentNoise.getNoise_LAmax());
-        json.put("noise_LA_min", recentNoise.getNoise_LAmin());
         return json;
     }
 
     private JsonObject recentDataSensorCommunity(UUID id) {
         int community_sensor_id = sensorRepository.findByUuid(id).getSensor_community_sensor_id();
-        System.out.println("Fetching recent data for community_sensor_id: " + community_sensor_id);
+        logger.debug("Fetching recent data for community_sensor_id: ", community_sensor_id);
 
         JsonArray data = sensorCommunityFetch.recentData(community_sensor_id);
-        System.out.println("recentData fetched: " + data);
+        logger.debug("recentData fetched: ", data);
         if (data != null && data.size() > 0) {
             JsonObject json = data.getJsonObject(0);
             JsonObject result = new JsonObject();
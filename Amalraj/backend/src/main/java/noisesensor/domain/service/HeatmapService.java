@@ -0,0 +1,257 @@
+package noisesensor.domain.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.Transactional.TxType;
+import noisesensor.data.repository.DailyNoiseRepository;
+import noisesensor.data.repository.NoiseRepository;
+import noisesensor.domain.event.DailyAggregatedEvent;
+import noisesensor.domain.event.ReadingEvent;
+import noisesensor.utils.Decibels;
+import noisesensor.utils.Logger;
+
+// Average LAeq over a grid of cells in Web Mercator (z/x/y) tiles.
+// Every sensor adds the energy of its current level to one cell per zoom level,
+// cells are updated as levels change and tiles are cached as encoded JSON bytes
+// until one of their cells changes.
+@ApplicationScoped
+public class HeatmapService {
+
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    @Inject
+    NoiseRepository noiseRepository;
+
+    @Inject
+    DailyNoiseRepository dailyNoiseRepository;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "noisesensor.heatmap.min-zoom", defaultValue = "4")
+    int minZoom;
+
+    @ConfigProperty(name = "noisesensor.heatmap.max-zoom", defaultValue = "14")
+    int maxZoom;
+
+    // Tiles are split in cells x cells, must be a power of two
+    @ConfigProperty(name = "noisesensor.heatmap.cells", defaultValue = "16")
+    int cells;
+
+    // Past this, a live reading gives way to the last daily level
+    @ConfigProperty(name = "noisesensor.heatmap.stale-minutes", defaultValue = "120")
+    int staleMinutes;
+
+    // Start of the latest day whose levels were loaded, older daily levels have expired
+    private volatile long dailyFrom = Long.MIN_VALUE;
+
+    private final Map<UUID, Point> points = new ConcurrentHashMap<>();
+    private final Map<Long, Cell> grid = new ConcurrentHashMap<>();
+    private final Map<Long, Long> tileVersions = new ConcurrentHashMap<>();
+    private final Map<Long, CachedTile> tiles = new ConcurrentHashMap<>();
+
+    private record CachedTile(long version, byte[] bytes) {
+    }
+
+    private static final class Point {
+        double latitude;
+        double longitude;
+        // Energy of the level currently counted in the grid, 0 when not counted
+        double energy;
+        long second = Long.MIN_VALUE;
+        // Taken out of the grid and the map, updates go to a new point
+        boolean removed;
+    }
+
+    private static final class Cell {
+        double energySum;
+        int sensors;
+    }
+
+    public boolean supportsZoom(int zoom) {
+        return zoom >= minZoom && zoom <= maxZoom;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        CompletableFuture.runAsync(this::seed).exceptionally(e -> {
+            logger.error("Heatmap seeding failed: " + e);
+            return null;
+        });
+    }
+
+    @Transactional
+    void seed() {
+        loadDaily(LocalDate.now().minusDays(1));
+        for (Object[] row : noiseRepository.findLatestPerSensorSince(LocalDateTime.now().minusMinutes(staleMinutes))) {
+            if (row[4] == null || row[5] == null) {
+                continue;
+            }
+            update((UUID) row[0], ((Number) row[4]).doubleValue(), ((Number) row[5]).doubleValue(),
+                    ((Number) row[2]).longValue(), ((Number) row[3]).floatValue());
+        }
+        logger.info("Heatmap seeded with " + points.size() + " sensors");
+    }
+
+    void onReading(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReadingEvent event) {
+        if (event.getTimestamp() == null || event.getLatitude() == null || event.getLongitude() == null) {
+            return;
+        }
+        update(event.getSensorId(), event.getLatitude(), event.getLongitude(),
+                HotWindowService.epochSecond(event.getTimestamp()), event.getNoise_LAeq());
+    }
+
+    void onDailyAggregated(@Observes(during = TransactionPhase.AFTER_SUCCESS) DailyAggregatedEvent event) {
+        loadDaily(event.getDate());
+    }
+
+    // Sensors without a recent live reading fall back to their daily level.
+    // Also called after the aggregation's transaction completed, so it needs its own.
+    @Transactional(TxType.REQUIRES_NEW)
+    void loadDaily(LocalDate date) {
+        long staleBefore = HotWindowService.epochSecond(LocalDateTime.now().minusMinutes(staleMinutes));
+        long second = HotWindowService.epochSecond(date.atStartOfDay());
+        dailyFrom = Math.max(dailyFrom, second);
+        for (Object[] row : dailyNoiseRepository.findLevelsWithLocation(date)) {
+            Point point = points.get((UUID) row[0]);
+            if (point != null && point.second >= staleBefore) {
+                continue;
+            }
+            update((UUID) row[0], ((Number) row[1]).doubleValue(), ((Number) row[2]).doubleValue(),
+                    Math.max(second, point != null ? point.second : Long.MIN_VALUE), ((Number) row[3]).floatValue());
+        }
+    }
+
+    // Sensors with neither a recent live reading nor a level of the latest loaded day leave the grid
+    @Scheduled(every = "5m")
+    void expire() {
+        long staleBefore = Math.min(dailyFrom,
+                HotWindowService.epochSecond(LocalDateTime.now().minusMinutes(staleMinutes)));
+        points.forEach((id, point) -> {
+            synchronized (point) {
+                if (point.second >= staleBefore) {
+                    return;
+                }
+                if (point.energy > 0) {
+                    apply(point.latitude, point.longitude, -point.energy, -1);
+                }
+                point.removed = true;
+                points.remove(id, point);
+            }
+        });
+    }
+
+    private void update(UUID sensorId, double latitude, double longitude, long second, float laeq) {
+        Point point = points.computeIfAbsent(sensorId, id -> new Point());
+        synchronized (point) {
+            if (point.removed) {
+                update(sensorId, latitude, longitude, second, laeq);
+                return;
+            }
+            if (second < point.second) {
+                return;
+            }
+            if (point.energy > 0 && (point.latitude != latitude || point.longitude != longitude)) {
+                // The sensor moved, take it out of its old cells first
+                apply(point.latitude, point.longitude, -point.energy, -1);
+                point.energy = 0;
+            }
+            double energy = Decibels.toEnergy(laeq);
+            apply(latitude, longitude, energy - point.energy, point.energy > 0 ? 0 : 1);
+            point.latitude = latitude;
+            point.longitude = longitude;
+            point.energy = energy;
+            point.second = second;
+        }
+    }
+
+    private void apply(double latitude, double longitude, double energyDelta, int sensorDelta) {
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            long scale = (long) cells << zoom;
+            long gx = cellX(longitude, scale);
+            long gy = cellY(latitude, scale);
+            Cell cell = grid.computeIfAbsent(key(zoom, gx, gy), k -> new Cell());
+            synchronized (cell) {
+                cell.energySum += energyDelta;
+                cell.sensors += sensorDelta;
+            }
+            tileVersions.merge(key(zoom, gx / cells, gy / cells), 1L, Long::sum);
+        }
+    }
+
+    // Encoded tile, built from its cells on the first request after a change
+    public byte[] tile(int zoom, long x, long y) {
+        long tileKey = key(zoom, x, y);
+        // Read the version first, a change during the build makes the next request rebuild
+        long version = tileVersions.getOrDefault(tileKey, 0L);
+        CachedTile cached = tiles.get(tileKey);
+        if (cached != null && cached.version() == version) {
+            return cached.bytes();
+        }
+        JsonArray cellsArray = new JsonArray();
+        for (int i = 0; i < cells; i++) {
+            for (int j = 0; j < cells; j++) {
+                Cell cell = grid.get(key(zoom, x * cells + i, y * cells + j));
+                if (cell == null) {
+                    continue;
+                }
+                double energySum;
+                int sensors;
+                synchronized (cell) {
+                    energySum = cell.energySum;
+                    sensors = cell.sensors;
+                }
+                if (sensors <= 0) {
+                    continue;
+                }
+                JsonObject json = new JsonObject();
+                json.put("x", i);
+                json.put("y", j);
+                json.put("noise_LAeq", Decibels.energyMean(energySum, sensors));
+                json.put("sensors", sensors);
+                cellsArray.add(json);
+            }
+        }
+        JsonObject json = new JsonObject();
+        json.put("z", zoom);
+        json.put("x", x);
+        json.put("y", y);
+        json.put("cells_per_side", cells);
+        json.put("cells", cellsArray);
+        byte[] encoded = json.encode().getBytes(StandardCharsets.UTF_8);
+        tiles.put(tileKey, new CachedTile(version, encoded));
+        return encoded;
+    }
+
+    private static long cellX(double longitude, long scale) {
+        long x = (long) Math.floor((longitude + 180.0) / 360.0 * scale);
+        return Math.min(Math.max(x, 0), scale - 1);
+    }
+
+    private static long cellY(double latitude, long scale) {
+        double lat = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        double y = (1.0 - Math.log(Math.tan(lat) + 1.0 / Math.cos(lat)) / Math.PI) / 2.0;
+        return Math.min(Math.max((long) Math.floor(y * scale), 0), scale - 1);
+    }
+
+    // zoom in the top 6 bits, then 29 bits for each coordinate
+    private static long key(int zoom, long x, long y) {
+        return ((long) zoom << 58) | (x << 29) | y;
+    }
+}
@@ -0,0 +1,242 @@
+package noisesensor.domain.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import noisesensor.data.repository.NoiseRepository;
+import noisesensor.domain.event.ReadingEvent;
+import noisesensor.utils.ReadingRingBuffer;
+import noisesensor.utils.Logger;
+
+// Last hours of readings per sensor, kept in memory so the day view and the
+// latest reading can be answered without loading NoiseModel entities.
+@ApplicationScoped
+public class HotWindowService {
+
+    @Inject
+    NoiseRepository noiseRepository;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "noisesensor.hot-window.hours", defaultValue = "48")
+    int windowHours;
+
+    @ConfigProperty(name = "noisesensor.hot-window.max-bytes", defaultValue = "268435456")
+    long maxBytes;
+
+    @ConfigProperty(name = "noisesensor.hot-window.max-readings-per-sensor", defaultValue = "200000")
+    int maxReadingsPerSensor;
+
+    private final Map<UUID, Window> windows = new ConcurrentHashMap<>();
+    // Sensors dropped to stay within the memory budget with their newest dropped second,
+    // their history is incomplete until the window has moved past it
+    private final Map<UUID, Long> evicted = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    private static final Window EMPTY = new Window(null, new ReadingRingBuffer(1), Long.MIN_VALUE);
+
+    // Nothing is served from memory before the backfill is done
+    private volatile long coveredFrom = Long.MAX_VALUE;
+
+    // Readings arriving while the backfill runs, added once it is done so none is added twice
+    private final List<ReadingEvent> duringBackfill = new ArrayList<>();
+    private volatile boolean backfilling = true;
+
+    public static final class Window {
+        final String source;
+        final ReadingRingBuffer buffer;
+        // Readings before this second may be missing from the buffer
+        volatile long coveredFrom;
+
+        Window(String source, ReadingRingBuffer buffer, long coveredFrom) {
+            this.source = source;
+            this.buffer = buffer;
+            this.coveredFrom = coveredFrom;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public ReadingRingBuffer getBuffer() {
+            return buffer;
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        // Backfill in the background, reads fall back to the database until it is done
+        CompletableFuture.runAsync(this::backfill).exceptionally(e -> {
+            logger.error("Hot window backfill failed: " + e);
+            return null;
+        });
+    }
+
+    @Transactional
+    void backfill() {
+        long since = epochSecond(LocalDateTime.now().minusHours(windowHours));
+        logger.info("Backfilling hot window since " + LocalDateTime.ofEpochSecond(since, 0, ZoneOffset.UTC));
+        long count = 0;
+        // Newest backfilled second per sensor, the rows come in time order
+        Map<UUID, Long> backfilled = new HashMap<>();
+        boolean complete = false;
+        try (Stream<Object[]> rows = noiseRepository.streamReadingsSince(LocalDateTime.ofEpochSecond(since, 0, ZoneOffset.UTC))) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                long second = ((Number) row[2]).longValue();
+                add((UUID) row[0], (String) row[1], second,
+                        ((Number) row[3]).floatValue(), ((Number) row[4]).floatValue(), ((Number) row[5]).floatValue(),
+                        since);
+                backfilled.put((UUID) row[0], second);
+                count++;
+            }
+            complete = true;
+        } finally {
+            endBackfill(backfilled, complete ? since : Long.MAX_VALUE);
+        }
+        logger.info("Hot window backfilled with " + count + " readings for " + windows.size() + " sensors");
+    }
+
+    // Readings committed during the backfill may be in its rows already: those at or before the
+    // sensor's newest backfilled second are skipped. Memory is served from 'covered' on.
+    private void endBackfill(Map<UUID, Long> backfilled, long covered) {
+        synchronized (duringBackfill) {
+            for (ReadingEvent event : duringBackfill) {
+                long second = epochSecond(event.getTimestamp());
+                if (second > backfilled.getOrDefault(event.getSensorId(), Long.MIN_VALUE)) {
+                    add(event.getSensorId(), event.getSource(), second, event.getNoise_LAeq(),
+                            event.getNoise_LAmax(), event.getNoise_LAmin(), covered);
+                }
+            }
+            duringBackfill.clear();
+            coveredFrom = covered;
+            backfilling = false;
+        }
+    }
+
+    void onReading(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReadingEvent event) {
+        if (event.getTimestamp() == null) {
+            return;
+        }
+        if (backfilling) {
+            synchronized (duringBackfill) {
+                if (backfilling) {
+                    duringBackfill.add(event);
+                    return;
+                }
+            }
+        }
+        add(event.getSensorId(), event.getSource(), epochSecond(event.getTimestamp()),
+                event.getNoise_LAeq(), event.getNoise_LAmax(), event.getNoise_LAmin(), coveredFrom);
+    }
+
+    private void add(UUID sensorId, String source, long second, float laeq, float lamax, float lamin, long coverage) {
+        Window window = windows.get(sensorId);
+        if (window == null) {
+            // A sensor dropped for memory is only complete again from its next reading
+            long from = evicted.remove(sensorId) != null ? second : coverage;
+            Window created = new Window(source, new ReadingRingBuffer(maxReadingsPerSensor), from);
+            window = windows.putIfAbsent(sensorId, created);
+            if (window == null) {
+                window = created;
+                usedBytes.addAndGet(created.buffer.sizeInBytes());
+            }
+        } else if (coverage < window.coveredFrom) {
+            window.coveredFrom = coverage;
+        }
+        long grown = window.buffer.add(second, laeq, lamax, lamin);
+        if (window.buffer.isFull()) {
+            window.coveredFrom = Math.max(window.coveredFrom, window.buffer.oldest());
+        }
+        if (grown > 0 && usedBytes.addAndGet(grown) > maxBytes) {
+            enforceBudget();
+        }
+    }
+
+    // The window of a sensor when it holds every reading since 'from', null otherwise
+    public Window covering(UUID sensorId, LocalDateTime from) {
+        long second = epochSecond(from);
+        if (second < coveredFrom) {
+            return null;
+        }
+        Window window = windows.get(sensorId);
+        if (window == null) {
+            // No reading since the backfill, unless it was dropped for memory
+            return evicted.containsKey(sensorId) ? null : EMPTY;
+        }
+        return second >= window.coveredFrom ? window : null;
+    }
+
+    // The window of a sensor if it has any reading in memory
+    public Window get(UUID sensorId) {
+        Window window = windows.get(sensorId);
+        return window != null && window.buffer.size() > 0 ? window : null;
+    }
+
+    @Scheduled(every = "10m")
+    void evictExpired() {
+        long cutoff = epochSecond(LocalDateTime.now().minusHours(windowHours));
+        // Older readings are gone from memory, days before the cutoff are read from the store again
+        coveredFrom = Math.max(coveredFrom, cutoff);
+        // Evicted sensors that stopped reporting have nothing missing once their dropped readings expired
+        evicted.values().removeIf(newest -> newest < cutoff);
+        windows.forEach((id, window) -> {
+            usedBytes.addAndGet(-window.buffer.evictBefore(cutoff));
+            window.coveredFrom = Math.max(window.coveredFrom, cutoff);
+            if (window.buffer.size() == 0) {
+                // Inactive for the whole window, nothing left to serve
+                if (windows.remove(id, window)) {
+                    usedBytes.addAndGet(-window.buffer.sizeInBytes());
+                }
+            }
+        });
+    }
+
+    // Drop the least recently updated sensors until the budget is respected
+    private synchronized void enforceBudget() {
+        if (usedBytes.get() <= maxBytes) {
+            return;
+        }
+        List<Map.Entry<UUID, Window>> entries = windows.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().buffer.newest()))
+                .toList();
+        // Leave some headroom so we do not evict again on the next reading
+        long target = maxBytes - maxBytes / 10;
+        for (Map.Entry<UUID, Window> entry : entries) {
+            if (usedBytes.get() <= target) {
+                break;
+            }
+            if (windows.remove(entry.getKey(), entry.getValue())) {
+                evicted.put(entry.getKey(), entry.getValue().buffer.newest());
+                usedBytes.addAndGet(-entry.getValue().buffer.sizeInBytes());
+            }
+        }
+        logger.info("Hot window over budget, " + evicted.size() + " sensors evicted so far");
+    }
+
+    public static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
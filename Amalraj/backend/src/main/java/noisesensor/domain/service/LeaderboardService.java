@@ -0,0 +1,273 @@
+package noisesensor.domain.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import noisesensor.data.repository.NoiseRepository;
+import noisesensor.domain.event.ReadingEvent;
+import noisesensor.utils.Decibels;
+import noisesensor.utils.Logger;
+
+// Loudest and quietest sensors, right now and for today, kept sorted as readings arrive.
+// Ranks live in concurrent skip lists (one global, one per country), a sensor's
+// rank is moved by removing its old entry and inserting the new one.
+@ApplicationScoped
+public class LeaderboardService {
+
+    public enum Period { NOW, TODAY }
+
+    @Inject
+    NoiseRepository noiseRepository;
+
+    @Inject
+    Logger logger;
+
+    // A sensor without reading for this long is not "now" anymore
+    @ConfigProperty(name = "noisesensor.leaderboard.stale-minutes", defaultValue = "120")
+    int staleMinutes;
+
+    private final Map<UUID, SensorLevels> sensors = new ConcurrentHashMap<>();
+    private final Board now = new Board();
+    private final Board today = new Board();
+
+    // Readings arriving while the seeding runs, applied once it is done so none is counted twice
+    private final List<ReadingEvent> duringSeed = new ArrayList<>();
+    private volatile boolean seeding = true;
+
+    private record Rank(float level, UUID sensorId) implements Comparable<Rank> {
+        @Override
+        public int compareTo(Rank other) {
+            int byLevel = Float.compare(level, other.level);
+            return byLevel != 0 ? byLevel : sensorId.compareTo(other.sensorId);
+        }
+    }
+
+    private static final class Board {
+        final NavigableSet<Rank> all = new ConcurrentSkipListSet<>();
+        final Map<String, NavigableSet<Rank>> byCountry = new ConcurrentHashMap<>();
+
+        void move(Rank previous, Rank next, String country) {
+            NavigableSet<Rank> local = country != null
+                    ? byCountry.computeIfAbsent(country, key -> new ConcurrentSkipListSet<>())
+                    : null;
+            if (previous != null) {
+                all.remove(previous);
+                if (local != null) {
+                    local.remove(previous);
+                }
+            }
+            if (next != null) {
+                all.add(next);
+                if (local != null) {
+                    local.add(next);
+                }
+            }
+        }
+
+        NavigableSet<Rank> ranks(String country) {
+            return country == null ? all : byCountry.getOrDefault(country, Collections.emptyNavigableSet());
+        }
+    }
+
+    // Current levels of one sensor, guarded by its own monitor
+    private static final class SensorLevels {
+        String country;
+        long latestSecond = Long.MIN_VALUE;
+        Rank nowRank;
+
+        long day = Long.MIN_VALUE;
+        double energySum;
+        long count;
+        Rank todayRank;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        CompletableFuture.runAsync(this::seed).exceptionally(e -> {
+            logger.error("Leaderboard seeding failed: " + e);
+            return null;
+        });
+    }
+
+    // One grouped query for today and one for the latest readings, instead of walking every sensor
+    @Transactional
+    void seed() {
+        // Newest seeded second per sensor
+        Map<UUID, Long> seeded = new HashMap<>();
+        try {
+            LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
+            for (Object[] row : noiseRepository.sumEnergyPerSensor(startOfDay, startOfDay.plusDays(1))) {
+                UUID id = (UUID) row[0];
+                SensorLevels levels = levels(id, (String) row[1]);
+                synchronized (levels) {
+                    levels.day = LocalDate.now().toEpochDay();
+                    levels.energySum = ((Number) row[2]).doubleValue();
+                    levels.count = ((Number) row[3]).longValue();
+                    rankToday(levels, id);
+                }
+                seeded.merge(id, ((Number) row[4]).longValue(), Math::max);
+            }
+            LocalDateTime since = LocalDateTime.now().minusMinutes(staleMinutes);
+            for (Object[] row : noiseRepository.findLatestPerSensorSince(since)) {
+                UUID id = (UUID) row[0];
+                SensorLevels levels = levels(id, (String) row[1]);
+                long second = ((Number) row[2]).longValue();
+                synchronized (levels) {
+                    rankNow(levels, id, second, ((Number) row[3]).floatValue());
+                }
+                seeded.merge(id, second, Math::max);
+            }
+        } finally {
+            endSeed(seeded);
+        }
+        logger.info("Leaderboard seeded with " + sensors.size() + " sensors");
+    }
+
+    // Readings committed during the seeding may be counted by its queries already: those at or before
+    // the sensor's newest seeded second are skipped, the others are added to the seeded totals
+    private void endSeed(Map<UUID, Long> seeded) {
+        synchronized (duringSeed) {
+            for (ReadingEvent event : duringSeed) {
+                if (HotWindowService.epochSecond(event.getTimestamp())
+                        > seeded.getOrDefault(event.getSensorId(), Long.MIN_VALUE)) {
+                    apply(event);
+                }
+            }
+            duringSeed.clear();
+            seeding = false;
+        }
+    }
+
+    void onReading(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReadingEvent event) {
+        if (event.getTimestamp() == null) {
+            return;
+        }
+        if (seeding) {
+            synchronized (duringSeed) {
+                if (seeding) {
+                    duringSeed.add(event);
+                    return;
+                }
+            }
+        }
+        apply(event);
+    }
+
+    private void apply(ReadingEvent event) {
+        UUID id = event.getSensorId();
+        SensorLevels levels = levels(id, event.getCountry());
+        long second = HotWindowService.epochSecond(event.getTimestamp());
+        long day = event.getTimestamp().toLocalDate().toEpochDay();
+        synchronized (levels) {
+            rankNow(levels, id, second, event.getNoise_LAeq());
+            if (day > levels.day) {
+                levels.day = day;
+                levels.energySum = 0;
+                levels.count = 0;
+            }
+            if (day == levels.day) {
+                levels.energySum += Decibels.toEnergy(event.getNoise_LAeq());
+                levels.count++;
+                rankToday(levels, id);
+            }
+        }
+    }
+
+    private SensorLevels levels(UUID id, String country) {
+        SensorLevels levels = sensors.computeIfAbsent(id, key -> new SensorLevels());
+        if (levels.country == null && country != null) {
+            synchronized (levels) {
+                levels.country = country.toUpperCase(Locale.ROOT);
+            }
+        }
+        return levels;
+    }
+
+    private void rankNow(SensorLevels levels, UUID id, long second, float laeq) {
+        if (second < levels.latestSecond) {
+            return;
+        }
+        levels.latestSecond = second;
+        Rank next = new Rank(laeq, id);
+        now.move(levels.nowRank, next, levels.country);
+        levels.nowRank = next;
+    }
+
+    private void rankToday(SensorLevels levels, UUID id) {
+        Rank next = new Rank(Decibels.energyMean(levels.energySum, levels.count), id);
+        today.move(levels.todayRank, next, levels.country);
+        levels.todayRank = next;
+    }
+
+    public List<JsonObject> top(Period period, boolean loudest, String country, int limit) {
+        Board board = period == Period.NOW ? now : today;
+        NavigableSet<Rank> ranks = board.ranks(country != null ? country.toUpperCase(Locale.ROOT) : null);
+        Iterator<Rank> iterator = loudest ? ranks.descendingIterator() : ranks.iterator();
+
+        long staleBefore = HotWindowService.epochSecond(LocalDateTime.now().minusMinutes(staleMinutes));
+        long currentDay = LocalDate.now().toEpochDay();
+        List<JsonObject> result = new ArrayList<>(limit);
+        while (iterator.hasNext() && result.size() < limit) {
+            Rank rank = iterator.next();
+            SensorLevels levels = sensors.get(rank.sensorId());
+            if (levels == null) {
+                continue;
+            }
+            long latestSecond;
+            synchronized (levels) {
+                latestSecond = levels.latestSecond;
+                // Skip entries that went stale since the last cleanup
+                if (period == Period.NOW ? latestSecond < staleBefore : levels.day != currentDay) {
+                    continue;
+                }
+            }
+            JsonObject json = new JsonObject();
+            json.put("id", rank.sensorId().toString());
+            json.put("country", levels.country);
+            json.put("noise_LAeq", rank.level());
+            json.put("timestamp", HotWindowService.toLocalDateTime(latestSecond).toString());
+            result.add(json);
+        }
+        return result;
+    }
+
+    // Remove stale ranks so reads do not have to step over them
+    @Scheduled(every = "5m")
+    void cleanup() {
+        long staleBefore = HotWindowService.epochSecond(LocalDateTime.now().minusMinutes(staleMinutes));
+        long currentDay = LocalDate.now().toEpochDay();
+        sensors.forEach((id, levels) -> {
+            synchronized (levels) {
+                if (levels.nowRank != null && levels.latestSecond < staleBefore) {
+                    now.move(levels.nowRank, null, levels.country);
+                    levels.nowRank = null;
+                }
+                if (levels.todayRank != null && levels.day != currentDay) {
+                    today.move(levels.todayRank, null, levels.country);
+                    levels.todayRank = null;
+                }
+            }
+        });
+    }
+}
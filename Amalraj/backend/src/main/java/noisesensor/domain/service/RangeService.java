@@ -0,0 +1,151 @@
+package noisesensor.domain.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import io.vertx.core.json.*;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import noisesensor.data.model.NoiseBucket;
+import noisesensor.data.model.Resolution;
+import noisesensor.data.model.SensorModel;
+import noisesensor.data.repository.RollupRepository;
+import noisesensor.data.repository.SensorRepository;
+import noisesensor.data.routing.ReadOnly;
+import noisesensor.data.store.NoiseStore;
+import noisesensor.utils.Decibels;
+import noisesensor.utils.LevelHistogram;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import static noisesensor.errors.ErrorsCode.ERROR_404;
+
+@ApplicationScoped
+public class RangeService {
+
+    @Inject
+    SensorRepository sensorRepository;
+
+    @Inject
+    NoiseStore noiseStore;
+
+    @Inject
+    RollupRepository rollupRepository;
+
+    @ConfigProperty(name = "noisesensor.aggregation.checkpoint-interval", defaultValue = "5m")
+    Duration checkpointInterval;
+
+    @Inject
+    DisplayService displayService;
+
+    // Aggregate [from, to) into buckets of 'step', reading the coarsest stored resolution
+    // that fits the step. Finer tiers are only read for what the coarser one does not cover yet.
+    @ReadOnly
+    public JsonObject rangeData(UUID id, LocalDateTime from, LocalDateTime to, Duration step) {
+        SensorModel sensor = sensorRepository.findByUuid(id);
+        if (sensor == null) {
+            ERROR_404.throwException("Sensor not found: " + id);
+        }
+
+        Resolution resolution = Resolution.coarsestFor(step, from);
+        List<NoiseBucket> buckets = findBuckets(id, resolution, from, to, step.getSeconds());
+
+        JsonObject json = new JsonObject();
+        json.put("id", sensor.getId().toString());
+        json.put("location", displayService.locationModelToJson(sensor.getLocation()));
+        json.put("source", sensor.getSource());
+        json.put("resolution", resolution.name().toLowerCase());
+
+        JsonArray noisesArray = new JsonArray();
+        for (NoiseBucket bucket : buckets) {
+            JsonObject noise = new JsonObject();
+            noise.put("timestamp", from.plusSeconds(bucket.getIndex() * step.getSeconds()).toString());
+            noise.put("noise_LAeq", bucket.getNoise_LAeq());
+            noise.put("noise_LAmax", bucket.getNoise_LAmax());
+            noise.put("noise_LAmin", bucket.getNoise_LAmin());
+            displayService.putStatisticalLevels(noise, LevelHistogram.of(bucket.getHistogram()));
+            noisesArray.add(noise);
+        }
+        json.put("noises", noisesArray);
+        return json;
+    }
+
+    List<NoiseBucket> findBuckets(UUID id, Resolution resolution, LocalDateTime from, LocalDateTime to, long step) {
+        return findBuckets(id, resolution, from, from, to, step);
+    }
+
+    // Rows of a tier are complete up to its horizon, the rest of the range is read from the tier below
+    private List<NoiseBucket> findBuckets(UUID id, Resolution tier, LocalDateTime origin, LocalDateTime from,
+                                          LocalDateTime to, long step) {
+        if (tier == Resolution.RAW) {
+            return noiseStore.findBuckets(id, origin, from, to, step);
+        }
+        LocalDateTime horizon = horizon(tier);
+        if (!from.isBefore(horizon)) {
+            return findBuckets(id, tier.finer(), origin, from, to, step);
+        }
+        LocalDateTime coarseEnd = to.isBefore(horizon) ? tier.ceil(to) : horizon;
+        List<NoiseBucket> coarse = rollupRepository.findBuckets(tier, id, origin, from, coarseEnd, step);
+        if (!to.isAfter(horizon)) {
+            return coarse;
+        }
+        List<NoiseBucket> fine = findBuckets(id, tier.finer(), origin, horizon, to, step);
+        return mergeAt(origin, horizon, to, step, coarse, fine);
+    }
+
+    // Hours and days are written by the checkpoints, weeks are rolled up once a day has been closed
+    LocalDateTime horizon(Resolution tier) {
+        LocalDateTime now = LocalDateTime.now();
+        if (tier == Resolution.WEEK || tier == Resolution.MONTH) {
+            return tier.periodStart(now.minusDays(1));
+        }
+        return tier.periodStart(now.minus(checkpointInterval));
+    }
+
+    // Both lists are ordered by index; at most the bucket holding the horizon appears in both
+    private static List<NoiseBucket> mergeAt(LocalDateTime from, LocalDateTime horizon, LocalDateTime to, long step,
+                                             List<NoiseBucket> coarse, List<NoiseBucket> fine) {
+        List<NoiseBucket> merged = new ArrayList<>(coarse.size() + fine.size());
+        int i = 0;
+        int j = 0;
+        while (i < coarse.size() || j < fine.size()) {
+            if (j == fine.size() || (i < coarse.size() && coarse.get(i).getIndex() < fine.get(j).getIndex())) {
+                merged.add(coarse.get(i++));
+            } else if (i == coarse.size() || fine.get(j).getIndex() < coarse.get(i).getIndex()) {
+                merged.add(fine.get(j++));
+            } else {
+                NoiseBucket a = coarse.get(i++);
+                NoiseBucket b = fine.get(j++);
+                LocalDateTime start = bucketStart(from, a.getIndex(), step);
+                LocalDateTime end = bucketStart(from, a.getIndex() + 1, step);
+                // Weight each side by the part of the bucket it covers
+                long aSeconds = Duration.between(start, horizon).getSeconds();
+                long bSeconds = Duration.between(horizon, end.isBefore(to) ? end : to).getSeconds();
+                merged.add(merge(a, aSeconds, b, bSeconds));
+            }
+        }
+        return merged;
+    }
+
+    static NoiseBucket merge(NoiseBucket a, long aWeight, NoiseBucket b, long bWeight) {
+        double energy = Decibels.toEnergy(a.getNoise_LAeq()) * aWeight + Decibels.toEnergy(b.getNoise_LAeq()) * bWeight;
+        return new NoiseBucket(a.getIndex(),
+                Decibels.fromEnergy(energy / Math.max(1, aWeight + bWeight)),
+                Math.max(a.getNoise_LAmax(), b.getNoise_LAmax()),
+                Math.min(a.getNoise_LAmin(), b.getNoise_LAmin()),
+                a.getSamples() + b.getSamples(),
+                sum(a.getHistogram(), b.getHistogram()));
+    }
+
+    private static int[] sum(int[] a, int[] b) {
+        LevelHistogram histogram = LevelHistogram.of(a);
+        histogram.merge(b);
+        return histogram.toArray();
+    }
+
+    private static LocalDateTime bucketStart(LocalDateTime from, long index, long step) {
+        return from.plusSeconds(index * step);
+    }
+}
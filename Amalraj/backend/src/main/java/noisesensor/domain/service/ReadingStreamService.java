@@ -0,0 +1,174 @@
+package noisesensor.domain.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.scheduler.Scheduled;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import noisesensor.domain.event.ReadingEvent;
+import noisesensor.utils.Logger;
+
+import static noisesensor.errors.ErrorsCode.ERROR_503;
+
+// Pushes accepted readings to Server-Sent Events subscribers.
+// Every connection has its own bounded queue, a consumer that cannot keep up
+// loses readings and is disconnected after too many of them in a row.
+@ApplicationScoped
+public class ReadingStreamService {
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "noisesensor.stream.buffer-size", defaultValue = "64")
+    int bufferSize;
+
+    @ConfigProperty(name = "noisesensor.stream.max-dropped", defaultValue = "256")
+    int maxDropped;
+
+    @ConfigProperty(name = "noisesensor.stream.max-connections", defaultValue = "10000")
+    int maxConnections;
+
+    private final Map<UUID, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> connections = ConcurrentHashMap.newKeySet();
+    // Slots taken, reserved before a connection is added so concurrent subscribes cannot pass the limit
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    public void subscribe(Collection<UUID> sensorIds, SseEventSink sink, Sse sse) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            ERROR_503.throwException("Too many stream connections");
+        }
+        Subscriber subscriber = new Subscriber(sensorIds, sink, sse, bufferSize);
+        connections.add(subscriber);
+        for (UUID id : sensorIds) {
+            subscribers.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+    }
+
+    void onReading(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReadingEvent event) {
+        Set<Subscriber> targets = subscribers.get(event.getSensorId());
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        // Serialized once, shared by every subscriber of the sensor
+        JsonObject json = new JsonObject();
+        json.put("sensor_id", event.getSensorId().toString());
+        json.put("timestamp", event.getTimestamp() != null ? event.getTimestamp().toString() : null);
+        json.put("noise_LAeq", event.getNoise_LAeq());
+        json.put("noise_LAmax", event.getNoise_LAmax());
+        json.put("noise_LAmin", event.getNoise_LAmin());
+        String payload = json.encode();
+
+        for (Subscriber subscriber : targets) {
+            if (subscriber.offer(payload)) {
+                // A consumer catching up again is not closed for its earlier lag
+                subscriber.dropped.set(0);
+            } else if (subscriber.dropped.incrementAndGet() > maxDropped) {
+                logger.warn("Closing slow stream consumer, readings dropped in a row: ", maxDropped);
+                close(subscriber);
+            }
+        }
+    }
+
+    // Comments keep proxies from timing out idle connections and reveal closed sinks
+    @Scheduled(every = "30s")
+    void heartbeat() {
+        for (Subscriber subscriber : connections) {
+            if (subscriber.sink.isClosed()) {
+                close(subscriber);
+            } else {
+                subscriber.offer(null);
+            }
+        }
+    }
+
+    public int connectionCount() {
+        return connectionCount.get();
+    }
+
+    private void close(Subscriber subscriber) {
+        if (!connections.remove(subscriber)) {
+            return;
+        }
+        connectionCount.decrementAndGet();
+        for (UUID id : subscriber.sensorIds) {
+            subscribers.computeIfPresent(id, (key, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        try {
+            subscriber.sink.close();
+        } catch (Exception e) {
+            // Already closed by the client
+        }
+    }
+
+    private final class Subscriber {
+        // Marks a heartbeat in the queue
+        private static final String HEARTBEAT = "";
+
+        final Collection<UUID> sensorIds;
+        final SseEventSink sink;
+        final Sse sse;
+        final ArrayBlockingQueue<String> queue;
+        final AtomicBoolean sending = new AtomicBoolean();
+        // Readings dropped since the last one accepted
+        final AtomicInteger dropped = new AtomicInteger();
+
+        Subscriber(Collection<UUID> sensorIds, SseEventSink sink, Sse sse, int bufferSize) {
+            this.sensorIds = sensorIds;
+            this.sink = sink;
+            this.sse = sse;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        // A null payload queues a heartbeat
+        boolean offer(String payload) {
+            boolean accepted = queue.offer(payload != null ? payload : HEARTBEAT);
+            drain();
+            return accepted;
+        }
+
+        // Only one send is in flight per connection, the next one starts when it completes
+        private void drain() {
+            while (sending.compareAndSet(false, true)) {
+                String next = queue.poll();
+                if (next == null) {
+                    sending.set(false);
+                    // A producer may have queued between poll and set
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                var event = next == HEARTBEAT
+                        ? sse.newEventBuilder().comment("heartbeat").build()
+                        : sse.newEventBuilder().name("reading").data(next).build();
+                sink.send(event).whenComplete((result, error) -> {
+                    if (error != null) {
+                        close(this);
+                        return;
+                    }
+                    sending.set(false);
+                    drain();
+                });
+                return;
+            }
+        }
+    }
+}
@@ -2,20 +2,27 @@ package noisesensor.domain.service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import org.hibernate.exception.ConstraintViolationException;
 
 import io.vertx.core.json.*;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.PersistenceException;
 import jakarta.transaction.Transactional;
 import noisesensor.data.model.SensorModel;
 import noisesensor.data.model.LocationModel;
-import noisesensor.data.model.NoiseModel;
 import noisesensor.data.repository.SensorRepository;
 import noisesensor.data.repository.LocationRepository;
 import noisesensor.data.repository.NoiseRepository;
+import noisesensor.data.store.NoiseStore;
+import noisesensor.domain.event.ReadingEvent;
+import noisesensor.metrics.QueryBudget;
+import noisesensor.utils.Logger;
 
 @ApplicationScoped
 public class SensorCommunityService {
@@ -28,15 +35,24 @@ public class SensorCommunityService {
 
     @Inject
     NoiseRepository noiseRepository;
+
+    @Inject
+    NoiseStore noiseStore;
+
+    @Inject
+    Event<ReadingEvent> readingEvent;
+
+    @Inject
+    Logger logger;
     
     // Transforming the raw JSON string into a JsonArray
     public JsonArray processData(String string) {
         if (string != null && !string.isEmpty()) {
-            System.out.println("processData : " + string.length() + " caracters");
+            logger.debug("processData characters: ", string.length());
             JsonArray jsonArray = new JsonArray(string);
             return jsonArray;
         } else {
-            System.out.println("processData dataJson : null or nothing");
+            logger.warn("processData dataJson : null or nothing");
             throw new IllegalArgumentException("Input string is null or empty");
         }
     }
@@ -85,15 +101,28 @@ public class SensorCommunityService {
         return newObject;
     }
 
-    // Store the filtered data (sensors and locations) into the database (and noise values if storeNoise is true)
+    // Store the filtered data (sensors and locations) into the database (and noise values if storeNoise is true).
+    // Known sensors and locations are loaded up front, a fetch costs a few selects whatever its size.
     @Transactional
+    @QueryBudget(value = 4, perBatch = 4)
     public int storeSensor(JsonArray filteredJsonArray, boolean storeNoise) {
+        List<Integer> locationIds = new ArrayList<>();
+        List<Integer> sensorIds = new ArrayList<>();
+        for (Object tmp : filteredJsonArray) {
+            if (tmp instanceof JsonObject object) {
+                locationIds.add(object.getInteger("location_id"));
+                sensorIds.add(object.getInteger("sensor_id"));
+            }
+        }
+        Map<Integer, LocationModel> locations = locationRepository.findBySensorCommunityLocationIds(locationIds);
+        Map<Integer, SensorModel> sensors = sensorRepository.findBySensorCommunitySensorIds(sensorIds);
+
         for (Object tmp : filteredJsonArray) {
             if (tmp instanceof JsonObject) {
                 JsonObject object = (JsonObject) tmp;
 
                 // 1. Check if LocationModel exists
-                LocationModel location = locationRepository.findBySensorCommunityLocationId(object.getInteger("location_id"));
+                LocationModel location = locations.get(object.getInteger("location_id"));
                 if (location == null) {
                     try {
                         location = locationRepository.createLocation(object.getString("country"),
@@ -109,16 +138,18 @@ public class SensorCommunityService {
                             throw e;
                         }
                     }
+                    locations.put(object.getInteger("location_id"), location);
                 }
 
                 // 2. Check if SensorModel exists for this location
-                SensorModel sensor = sensorRepository.findBySensorCommunitySensorId(object.getInteger("sensor_id"));
+                SensorModel sensor = sensors.get(object.getInteger("sensor_id"));
                 if (sensor == null) {
                     sensor = new SensorModel();
                     sensor.setLocation(location);
                     sensor.setSource("sensorcommunity");
                     sensor.setSensor_community_sensor_id(object.getInteger("sensor_id"));
                     sensorRepository.persist(sensor);
+                    sensors.put(object.getInteger("sensor_id"), sensor);
                 }
 
                 if (!storeNoise) {
@@ -129,14 +160,18 @@ public class SensorCommunityService {
                 DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
                 LocalDateTime date = LocalDateTime.parse(object.getString("timestamp"), formatter);
 
-                // 4. Create and persist NoiseModel
-                NoiseModel noise = new NoiseModel();
-                noise.setSensor(sensor);
-                noise.setTimestamp(date);
-                noise.setNoise_LAeq(Float.parseFloat(object.getString("noise_LAeq")));
-                noise.setNoise_LAmax(Float.parseFloat(object.getString("noise_LAmax")));
-                noise.setNoise_LAmin(Float.parseFloat(object.getString("noise_LAmin")));
-                noiseRepository.persist(noise);
+                // 4. Store the reading
+                float laeq = Float.parseFloat(object.getString("noise_LAeq"));
+                float lamax = Float.parseFloat(object.getString("noise_LAmax"));
+                float lamin = Float.parseFloat(object.getString("noise_LAmin"));
+                noiseStore.append(sensor.getId(), date, laeq, lamax, lamin);
+
+                LocationModel sensorLocation = sensor.getLocation() != null ? sensor.getLocation() : location;
+                readingEvent.fire(new ReadingEvent(sensor.getId(), sensor.getSource(),
+                        sensorLocation != null ? sensorLocation.getCountry() : null,
+                        sensorLocation != null ? (Float) sensorLocation.getLatitude() : null,
+                        sensorLocation != null ? (Float) sensorLocation.getLongitude() : null,
+                        date, laeq, lamax, lamin));
             }
         }
 
@@ -0,0 +1,184 @@
+package noisesensor.domain.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.Transactional.TxType;
+import noisesensor.data.model.LevelDelta;
+import noisesensor.data.model.Resolution;
+import noisesensor.data.repository.DailyNoiseRepository;
+import noisesensor.data.repository.NoiseRepository;
+import noisesensor.data.repository.RollupRepository;
+import noisesensor.domain.event.ReadingEvent;
+import noisesensor.metrics.NoiseMetrics;
+import noisesensor.utils.LevelAccumulator;
+import noisesensor.utils.Logger;
+
+// Hourly and daily statistics of every sensor, updated as readings are accepted.
+// 'total' is what the views read, 'pending' is what the next checkpoint adds to the tier's table.
+// Weekly and monthly rows are rolled up from the daily ones by the nightly job.
+@ApplicationScoped
+public class StreamingAggregationService {
+
+    static final List<Resolution> TIERS = List.of(Resolution.HOUR, Resolution.DAY);
+
+    @Inject
+    DailyNoiseRepository dailyNoiseRepository;
+
+    @Inject
+    RollupRepository rollupRepository;
+
+    @Inject
+    NoiseMetrics noiseMetrics;
+
+    @Inject
+    Logger logger;
+
+    private record PeriodKey(Resolution tier, UUID sensorId, LocalDateTime periodStart) {
+    }
+
+    private static final class PeriodAccumulator {
+        final LevelAccumulator total = new LevelAccumulator();
+        LevelAccumulator pending = new LevelAccumulator();
+    }
+
+    private final Map<PeriodKey, PeriodAccumulator> accumulators = new ConcurrentHashMap<>();
+
+    void onStart(@Observes StartupEvent event) {
+        seed();
+    }
+
+    // Start from what previous runs already checkpointed for yesterday and today.
+    // Hours are only read back by range queries, which go to the table, so they start empty.
+    @Transactional
+    void seed() {
+        for (Object[] row : dailyNoiseRepository.findSumsSince(LocalDate.now().minusDays(1))) {
+            PeriodKey key = new PeriodKey(Resolution.DAY, (UUID) row[0], toLocalDate(row[1]).atStartOfDay());
+            PeriodAccumulator accumulator = accumulators.computeIfAbsent(key, k -> new PeriodAccumulator());
+            synchronized (accumulator) {
+                accumulator.total.merge(((Number) row[2]).longValue(), ((Number) row[3]).doubleValue(),
+                        ((Number) row[4]).floatValue(), ((Number) row[5]).floatValue(),
+                        NoiseRepository.toHistogram(row[6]));
+            }
+        }
+    }
+
+    static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof java.sql.Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    void onReading(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReadingEvent event) {
+        if (event.getTimestamp() == null) {
+            return;
+        }
+        for (Resolution tier : TIERS) {
+            PeriodKey key = new PeriodKey(tier, event.getSensorId(), tier.periodStart(event.getTimestamp()));
+            PeriodAccumulator accumulator = accumulators.computeIfAbsent(key, k -> new PeriodAccumulator());
+            synchronized (accumulator) {
+                accumulator.total.add(event.getNoise_LAeq(), event.getNoise_LAmax(), event.getNoise_LAmin());
+                accumulator.pending.add(event.getNoise_LAeq(), event.getNoise_LAmax(), event.getNoise_LAmin());
+            }
+        }
+    }
+
+    // Statistics of a sensor for a day so far, null when nothing is known in memory
+    public LevelAccumulator snapshot(UUID sensorId, LocalDate date) {
+        PeriodAccumulator accumulator = accumulators.get(new PeriodKey(Resolution.DAY, sensorId, date.atStartOfDay()));
+        if (accumulator == null) {
+            return null;
+        }
+        LevelAccumulator copy = new LevelAccumulator();
+        synchronized (accumulator) {
+            copy.merge(accumulator.total);
+        }
+        return copy.isEmpty() ? null : copy;
+    }
+
+    @Scheduled(every = "${noisesensor.aggregation.checkpoint-interval:5m}")
+    void scheduledCheckpoint() {
+        checkpoint();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        checkpoint();
+    }
+
+    // Adds everything accumulated since the last checkpoint to hourly_noise and daily_noise
+    public synchronized int checkpoint() {
+        Map<PeriodKey, LevelAccumulator> taken = new HashMap<>();
+        accumulators.forEach((key, accumulator) -> {
+            synchronized (accumulator) {
+                if (!accumulator.pending.isEmpty()) {
+                    taken.put(key, accumulator.pending);
+                    accumulator.pending = new LevelAccumulator();
+                }
+            }
+        });
+        if (taken.isEmpty()) {
+            return 0;
+        }
+
+        Map<Resolution, List<LevelDelta>> deltas = new EnumMap<>(Resolution.class);
+        taken.forEach((key, pending) -> deltas.computeIfAbsent(key.tier(), t -> new ArrayList<>())
+                .add(new LevelDelta(key.sensorId(), key.periodStart(),
+                        pending.getCount(), pending.getEnergySum(), pending.getMax(), pending.getMin(),
+                        pending.getHistogram())));
+        try {
+            long start = System.nanoTime();
+            write(deltas);
+            noiseMetrics.aggregation("checkpoint", "write", System.nanoTime() - start,
+                    deltas.getOrDefault(Resolution.DAY, List.of()).size());
+        } catch (RuntimeException e) {
+            // Put the readings back so the next checkpoint retries them
+            taken.forEach((key, pending) -> {
+                PeriodAccumulator accumulator = accumulators.computeIfAbsent(key, k -> new PeriodAccumulator());
+                synchronized (accumulator) {
+                    accumulator.pending.merge(pending);
+                }
+            });
+            logger.error("Aggregate checkpoint failed, will retry: " + e);
+            return 0;
+        }
+        return taken.size();
+    }
+
+    // All tiers in one transaction, so a retry never adds a tier's readings twice.
+    // Its own even inside a caller's transaction (closing a day), a failure must not roll that one back.
+    @Transactional(TxType.REQUIRES_NEW)
+    void write(Map<Resolution, List<LevelDelta>> deltas) {
+        deltas.forEach(rollupRepository::addDeltas);
+    }
+
+    // Forget periods that ended before 'date' once they have been checkpointed
+    public void evictBefore(LocalDate date) {
+        LocalDateTime cutoff = date.atStartOfDay();
+        accumulators.entrySet().removeIf(entry -> {
+            PeriodKey key = entry.getKey();
+            if (key.tier().nextPeriod(key.periodStart()).isAfter(cutoff)) {
+                return false;
+            }
+            synchronized (entry.getValue()) {
+                return entry.getValue().pending.isEmpty();
+            }
+        });
+    }
+}
@@ -15,7 +15,9 @@ public enum ErrorsCode implements IHttpError {
     ERROR_401(UNAUTHORIZED,"%s"),
     ERROR_404(NOT_FOUND,"%s"),
     ERROR_403(FORBIDDEN,"%s"),
-    ERROR_409(CONFLICT,"%s")
+    ERROR_409(CONFLICT,"%s"),
+    ERROR_429(TOO_MANY_REQUESTS,"%s"),
+    ERROR_503(SERVICE_UNAVAILABLE,"%s")
     ;
 
     private final HttpError error;
@@ -33,4 +35,9 @@ public enum ErrorsCode implements IHttpError {
     public void throwException(Object... args) {
         throw error.get(args);
     }
+
+    @Override
+    public RuntimeException getWithHeader(String header, Object value, Object... args) {
+        return error.getWithHeader(header, value, args);
+    }
 }
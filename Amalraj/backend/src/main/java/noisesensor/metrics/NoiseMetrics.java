@@ -0,0 +1,128 @@
+package noisesensor.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+// Application meters, exported with the rest at /q/metrics (Prometheus format).
+// Meters with fixed tags are registered once, the hot path only records into them.
+// Durations are passed in nanoseconds measured by the caller with System.nanoTime.
+@ApplicationScoped
+public class NoiseMetrics {
+
+    public enum ImportStage { DOWNLOAD, PARSE, FILTER, STORE }
+
+    @Inject
+    MeterRegistry registry;
+
+    private Timer ingestAccepted;
+    private Timer ingestRejected;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+    private final Map<ImportStage, Timer> importTimers = new ConcurrentHashMap<>();
+    private final Map<ImportStage, DistributionSummary> importRecords = new ConcurrentHashMap<>();
+    private final Map<String, Timer> outbound = new ConcurrentHashMap<>();
+    private final Map<String, Timer> aggregationSteps = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> aggregationBatches = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> statements = new ConcurrentHashMap<>();
+    private final Map<String, Counter> throttled = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void register() {
+        ingestAccepted = ingestTimer("accepted");
+        ingestRejected = ingestTimer("rejected");
+        for (ImportStage stage : ImportStage.values()) {
+            String name = stage.name().toLowerCase();
+            importTimers.put(stage, Timer.builder("noisesensor.import.stage.duration")
+                    .description("Duration of one stage of the Sensor.Community import")
+                    .tag("stage", name)
+                    .register(registry));
+            importRecords.put(stage, DistributionSummary.builder("noisesensor.import.stage.records")
+                    .description("Records out of one stage of the Sensor.Community import, characters for the download")
+                    .tag("stage", name)
+                    .register(registry));
+        }
+    }
+
+    private Timer ingestTimer(String outcome) {
+        return Timer.builder("noisesensor.ingest.duration")
+                .description("Handling of a device reading, POST /api/data")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void ingestAccepted(long nanos) {
+        ingestAccepted.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void ingestRejected(long nanos, String reason) {
+        ingestRejected.record(nanos, TimeUnit.NANOSECONDS);
+        rejections.computeIfAbsent(reason, r -> Counter.builder("noisesensor.ingest.rejected")
+                .description("Device readings rejected, by reason")
+                .tag("reason", r)
+                .register(registry)).increment();
+    }
+
+    public void importStage(ImportStage stage, long nanos, int records) {
+        importTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        importRecords.get(stage).record(records);
+    }
+
+    // 'outcome' is the HTTP status, or "error" when no response came back
+    public void outbound(String endpoint, String outcome, long nanos) {
+        outbound.computeIfAbsent(endpoint + ' ' + outcome, k -> Timer.builder("noisesensor.sensorcommunity.request")
+                .description("Requests to the Sensor.Community API")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // One step of an aggregation job over 'sensors' sensors (a checkpoint, a backfill chunk, a rollup...)
+    public void aggregation(String job, String step, long nanos, int sensors) {
+        String key = job + ' ' + step;
+        aggregationSteps.computeIfAbsent(key, k -> Timer.builder("noisesensor.aggregation.duration")
+                .description("Duration of one batch of an aggregation job")
+                .tag("job", job)
+                .tag("step", step)
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+        aggregationBatches.computeIfAbsent(key, k -> DistributionSummary.builder("noisesensor.aggregation.sensors")
+                .description("Sensors in one batch of an aggregation job")
+                .tag("job", job)
+                .tag("step", step)
+                .register(registry)).record(sensors);
+    }
+
+    // 'scope' is the bucket that refused the reading: sensor or global
+    public void throttled(String scope) {
+        throttled.computeIfAbsent(scope, s -> Counter.builder("noisesensor.admission.throttled")
+                .description("Device readings refused by admission control, by bucket")
+                .tag("scope", s)
+                .register(registry)).increment();
+    }
+
+    // Number of distinct sensors throttled recently, read when scraped
+    public void throttledSensors(Supplier<Number> count) {
+        Gauge.builder("noisesensor.admission.throttled.sensors", count)
+                .description("Sensors refused by admission control since the last bucket cleanup")
+                .register(registry);
+    }
+
+    // 'endpoint' is the resource method, so the tag has as many values as there are endpoints
+    public void statements(String endpoint, int count) {
+        statements.computeIfAbsent(endpoint, e -> DistributionSummary.builder("noisesensor.http.db.statements")
+                .description("SQL statements prepared while handling one request")
+                .tag("endpoint", e)
+                .register(registry)).record(count);
+    }
+}
@@ -0,0 +1,19 @@
+package noisesensor.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Most SQL statements one call of an endpoint or job may prepare (see QueryCounter).
+// 'value' does not depend on the amount of data. Methods that write rows may add 'perBatch'
+// statements per JDBC batch (quarkus.hibernate-orm.jdbc.statement-batch-size rows) they write.
+// Enforced by QueryBudgetTest; over budget REST calls are also logged by QueryCountFilter.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface QueryBudget {
+
+    int value();
+
+    int perBatch() default 0;
+}
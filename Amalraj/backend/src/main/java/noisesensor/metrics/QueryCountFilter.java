@@ -0,0 +1,50 @@
+package noisesensor.metrics;
+
+import java.lang.reflect.Method;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import noisesensor.utils.Logger;
+
+// Database statements per REST request, per resource method.
+// Requests over the constant part of their method's QueryBudget are logged.
+@Provider
+public class QueryCountFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Inject
+    NoiseMetrics noiseMetrics;
+
+    @Inject
+    Logger logger;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        QueryCounter.start();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        int statements = QueryCounter.stop();
+        Method method = resourceInfo.getResourceMethod();
+        if (method == null) {
+            return;
+        }
+        String endpoint = resourceInfo.getResourceClass().getSimpleName() + "." + method.getName();
+        noiseMetrics.statements(endpoint, statements);
+        QueryBudget budget = method.getAnnotation(QueryBudget.class);
+        // Written rows are not known here, only fixed budgets are checked
+        if (budget != null && budget.perBatch() == 0 && statements > budget.value()) {
+            logger.sampled(Logger.Level.WARN, "Query budget exceeded: ",
+                    endpoint + " ran " + statements + " statements, budget " + budget.value());
+        }
+    }
+}
@@ -5,12 +5,23 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import noisesensor.data.cluster.JobLeases;
 import noisesensor.domain.service.SensorCommunityService;
+import noisesensor.metrics.NoiseMetrics;
+import noisesensor.metrics.NoiseMetrics.ImportStage;
+import noisesensor.utils.Logger;
+import noisesensor.utils.Shard;
 import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.ScheduledExecution;
 
 @ApplicationScoped
 public class SensorCommunityFetch {
@@ -18,6 +29,18 @@ public class SensorCommunityFetch {
     @Inject
     SensorCommunityService sensorCommunityService;
 
+    @Inject
+    JobLeases jobLeases;
+
+    @Inject
+    NoiseMetrics noiseMetrics;
+
+    @Inject
+    Tracer tracer;
+
+    @Inject
+    Logger logger;
+
     private final HttpClient httpClient;
     
     public SensorCommunityFetch() {
@@ -26,14 +49,33 @@ public class SensorCommunityFetch {
                 .build();
     }
     
-    // Scheduled fetch every hour
+    // Scheduled fetch every hour, imported once for all nodes: each shard of the feed (by location)
+    // is stored by the node leasing it. A node downloads the feed once, for its first shard.
     @Scheduled(cron = "0 0 * * * ?")
-    public void scheduledFetchData() {
-        fetchData(true);
+    @WithSpan("import")
+    public void scheduledFetchData(ScheduledExecution execution) {
+        String hour = execution.getScheduledFireTime().truncatedTo(ChronoUnit.HOURS).toString();
+        // One attempt per run, a node that could not download leaves its shards to the others
+        JsonArray[] feed = new JsonArray[1];
+        boolean[] downloaded = new boolean[1];
+        jobLeases.run("fetch", hour, shard -> {
+            if (!downloaded[0]) {
+                feed[0] = downloadFeed();
+                downloaded[0] = true;
+            }
+            return feed[0] != null && storeFeed(feed[0], shard, true);
+        });
     }
 
     // Getting the data from the from the sensor.community
+    @WithSpan("import")
     public boolean fetchData(boolean storeNoise) {
+        JsonArray feed = downloadFeed();
+        return feed != null && storeFeed(feed, Shard.ALL, storeNoise);
+    }
+
+    // Noise readings of the last hour's feed, null when it could not be fetched
+    private JsonArray downloadFeed() {
         String API_URL = "https://data.sensor.community/static/v2/data.1h.json";
         try {            
             HttpRequest request = HttpRequest.newBuilder()
@@ -44,31 +86,54 @@ public class SensorCommunityFetch {
                     .GET()
                     .build();
 
-            HttpResponse<String> response = httpClient.send(request, 
-                    HttpResponse.BodyHandlers.ofString());
+            long start = System.nanoTime();
+            HttpResponse<String> response = send(request, "feed");
             
             if (response.statusCode() == 200) {
                 String jsonData = response.body();
-                System.out.println("fetchData : " + jsonData.length() + " caracters");
+                logger.info("fetchData : " + jsonData.length() + " caracters");
+                start = stage(ImportStage.DOWNLOAD, start, jsonData.length());
 
                 JsonArray processedData = sensorCommunityService.processData(jsonData);
+                start = stage(ImportStage.PARSE, start, processedData.size());
                 JsonArray filteredData = sensorCommunityService.filterData(processedData);
-                sensorCommunityService.storeSensor(filteredData, storeNoise);
-
-                return true;
+                stage(ImportStage.FILTER, start, filteredData.size());
+                return filteredData;
             } else {
-                System.out.println("HTTP error : " + response.statusCode());
-                return false;
+                logger.warn("HTTP error : " + response.statusCode());
+                return null;
             }
         } catch (Exception e) {
-            System.out.println("fetchData error : " + e);
+            logger.error("fetchData error : " + e);
+            return null;
+        }
+    }
+
+    // Stores the records of the feed whose location is in 'shard', sensors of one location stay together
+    private boolean storeFeed(JsonArray feed, Shard shard, boolean storeNoise) {
+        JsonArray records = feed;
+        if (shard.count() > 1) {
+            records = new JsonArray();
+            for (Object tmp : feed) {
+                if (tmp instanceof JsonObject object && shard.contains(object.getInteger("location_id"))) {
+                    records.add(object);
+                }
+            }
+        }
+        try {
+            long start = System.nanoTime();
+            int stored = sensorCommunityService.storeSensor(records, storeNoise);
+            stage(ImportStage.STORE, start, stored);
+            return true;
+        } catch (Exception e) {
+            logger.error("fetchData error : " + e);
             return false;
         }
     }
     
     public JsonArray recentData(Integer id) {
         String API_URL = "https://data.sensor.community/airrohr/v1/sensor/" + id + "/";
-        System.out.println(API_URL);
+        logger.debug("Fetching ", API_URL);
         try {            
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(API_URL))
@@ -78,22 +143,47 @@ public class SensorCommunityFetch {
                     .GET()
                     .build();
 
-            HttpResponse<String> response = httpClient.send(request, 
-                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = send(request, "sensor");
             
             if (response.statusCode() == 200) {
                 String jsonData = response.body();
-                System.out.println("recentData : " + jsonData.length() + " caracters");
+                logger.debug("recentData characters: ", jsonData.length());
                 JsonArray processedData = sensorCommunityService.processData(jsonData);
-                System.out.println("Number of elements stored : " + processedData.size());
+                logger.debug("recentData elements: ", processedData.size());
                 return processedData;
             } else {
-                System.out.println("HTTP error : " + response.statusCode());
+                logger.warn("HTTP error : " + response.statusCode());
                 return null;
             }
         } catch (Exception e) {
-            System.out.println("recentData error : " + e);
+            logger.error("recentData error : " + e);
             return null;
         }
     }
-}
\ No newline at end of file
+
+    // Records one import stage that started at 'start', returns when it ended.
+    // Its span is built afterwards from the measured duration, as a child of the import's span.
+    private long stage(ImportStage stage, long start, int records) {
+        long end = System.nanoTime();
+        noiseMetrics.importStage(stage, end - start, records);
+        Instant endTime = Instant.now();
+        tracer.spanBuilder("import " + stage.name().toLowerCase())
+                .setStartTimestamp(endTime.minusNanos(end - start))
+                .setAttribute("records", records)
+                .startSpan()
+                .end(endTime);
+        return end;
+    }
+
+    private HttpResponse<String> send(HttpRequest request, String endpoint) throws Exception {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            noiseMetrics.outbound(endpoint, String.valueOf(response.statusCode()), System.nanoTime() - start);
+            return response;
+        } catch (Exception e) {
+            noiseMetrics.outbound(endpoint, "error", System.nanoTime() - start);
+            throw e;
+        }
+    }
+}
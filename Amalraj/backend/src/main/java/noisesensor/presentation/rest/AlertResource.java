@@ -0,0 +1,57 @@
+package noisesensor.presentation.rest;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import noisesensor.domain.service.AlertService;
+import noisesensor.metrics.QueryBudget;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.UUID;
+
+import io.vertx.core.json.JsonObject;
+
+import static noisesensor.errors.ErrorsCode.ERROR_400;
+
+@Path("/api")
+public class AlertResource {
+
+    private static final int MAX_LIMIT = 1000;
+
+    @Inject
+    AlertService alertService;
+
+    // Example: /api/alerts?since=2025-10-10T00:00:00&sensor=<uuid>&limit=100 (default: the last 24 hours)
+    @GET
+    @Path("/alerts")
+    @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(2)
+    public Response alerts(@QueryParam("since") String since,
+                           @QueryParam("sensor") UUID sensorId,
+                           @QueryParam("limit") @DefaultValue("100") int limit) {
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        if (since != null) {
+            try {
+                from = LocalDateTime.parse(since);
+            } catch (DateTimeParseException e) {
+                ERROR_400.throwException("Invalid since: " + e.getParsedString());
+            }
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            ERROR_400.throwException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        List<JsonObject> response = alertService.history(from, sensorId, limit);
+        return Response.ok(response).build();
+    }
+
+    @GET
+    @Path("/alerts/active")
+    @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(0)
+    public Response activeAlerts() {
+        return Response.ok(alertService.active()).build();
+    }
+}
@@ -6,13 +6,19 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import noisesensor.common.api.request.DataRequest;
 import noisesensor.common.api.request.SubscribeRequest;
+import noisesensor.domain.service.AdmissionService;
 import noisesensor.domain.service.DailyAggregationService;
 import noisesensor.domain.service.DataService;
 import noisesensor.domain.service.DisplayService;
+import noisesensor.metrics.NoiseMetrics;
+import noisesensor.metrics.QueryBudget;
 import noisesensor.presentation.other.SensorCommunityFetch;
+import noisesensor.utils.Logger;
 
 import io.vertx.core.json.JsonObject;
 
+import static noisesensor.errors.ErrorsCode.ERROR_429;
+
 @Path("/api")
 public class DataResource {
 
@@ -28,6 +34,15 @@ public class DataResource {
     @Inject
     SensorCommunityFetch sensorCommunityFetch;
 
+    @Inject
+    AdmissionService admissionService;
+
+    @Inject
+    NoiseMetrics noiseMetrics;
+
+    @Inject
+    Logger logger;
+
     //@POST
     //@Path("/fetch/start")
     //@Produces(MediaType.TEXT_PLAIN)
@@ -42,6 +57,7 @@ public class DataResource {
     @PUT
     @Path("/subscribe")
     @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(3)
     public Response registerSensor(SubscribeRequest request) {
         JsonObject response = dataService.registerSensor(request);
         return Response.ok(response).build();
@@ -50,13 +66,32 @@ public class DataResource {
     @POST
     @Path("/data")
     @Produces(MediaType.TEXT_PLAIN)
+    @QueryBudget(4)
     public Response receiveData(DataRequest dataRequest) {
+        long start = System.nanoTime();
         if (dataRequest.getSensor_id() == null || dataRequest.getLocation_id() == null) {
+            noiseMetrics.ingestRejected(System.nanoTime() - start, "missing_uuid");
             return Response.status(400).entity("Missing uuid").build();
         }
+        if (dataRequest.getTimestamp() == null || dataRequest.getNoise_LAeq() == null
+                || dataRequest.getNoise_LAmax() == null || dataRequest.getNoise_LAmin() == null) {
+            noiseMetrics.ingestRejected(System.nanoTime() - start, "missing_value");
+            return Response.status(400).entity("Missing value").build();
+        }
+        // Before anything touches the database, malformed requests do not use up the sensor's tokens
+        long wait = admissionService.admit(dataRequest.getSensor_id());
+        if (wait > 0) {
+            noiseMetrics.ingestRejected(System.nanoTime() - start, "throttled");
+            throw ERROR_429.getWithHeader("Retry-After", Math.max(1, (wait + 999_999_999) / 1_000_000_000),
+                    "Too many readings, retry later");
+        }
         boolean response = dataService.receiveData(dataRequest);
-        String result = (response) ? "Success" : "Fail";
-        System.out.println(result);
+        logger.sampled(Logger.Level.DEBUG, response ? "Success" : "Fail", null);
+        if (response) {
+            noiseMetrics.ingestAccepted(System.nanoTime() - start);
+        } else {
+            noiseMetrics.ingestRejected(System.nanoTime() - start, "unknown_sensor");
+        }
         return Response.ok(response).build();
     }
 }
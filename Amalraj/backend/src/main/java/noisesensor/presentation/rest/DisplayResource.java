@@ -7,23 +7,49 @@ import jakarta.ws.rs.core.Response;
 import noisesensor.common.api.response.DisplayResponse;
 import noisesensor.common.api.response.LocationResponse;
 import noisesensor.common.api.response.NoiseResponse;
+import noisesensor.common.api.response.RangeResponse;
+import noisesensor.domain.service.ArchiveService;
 import noisesensor.domain.service.DisplayService;
+import noisesensor.domain.service.RangeService;
+import noisesensor.metrics.QueryBudget;
+import noisesensor.utils.Logger;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.UUID;
 
 import io.vertx.core.json.JsonObject;
 
+import static noisesensor.errors.ErrorsCode.ERROR_400;
+
 @Path("/api")
 public class DisplayResource {
 
+    // Upper bound on the number of buckets a single range request may ask for
+    private static final long MAX_BUCKETS = 10_000;
+
+    // Archived readings are returned one by one, so archive requests are limited in length
+    private static final long MAX_ARCHIVE_DAYS = 7;
+
     @Inject
     DisplayService displayService;
 
+    @Inject
+    RangeService rangeService;
+
+    @Inject
+    ArchiveService archiveService;
+
+    @Inject
+    Logger logger;
+
     @GET
     @Path("/{mode}/{id}")
     @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(6)
     public Response sendNoiseData(@PathParam("mode") String mode,
                             @PathParam("id") UUID id) {
         LocalDate date = LocalDate.now();
@@ -44,6 +70,17 @@ public class DisplayResource {
 
                 break;
 
+            case "today":
+                response = displayService.todayData(id);
+                locationResponse = response.getJsonObject("location").mapTo(LocationResponse.class);
+                noiseResponses = response.getJsonArray("noises").stream()
+                        .map(obj -> ((JsonObject) obj).mapTo(NoiseResponse.class))
+                        .toList();
+
+                displayResponse = new DisplayResponse(locationResponse, noiseResponses, response.getString("source"));
+
+                break;
+
             case "week":
                 response = displayService.weeklyData(id, date);
                 locationResponse = response.getJsonObject("location").mapTo(LocationResponse.class);
@@ -66,6 +103,17 @@ public class DisplayResource {
 
                 break;
 
+            case "year":
+                response = displayService.yearlyData(id, date);
+                locationResponse = response.getJsonObject("location").mapTo(LocationResponse.class);
+                noiseResponses = response.getJsonArray("noises").stream()
+                        .map(obj -> ((JsonObject) obj).mapTo(NoiseResponse.class))
+                        .toList();
+
+                displayResponse = new DisplayResponse(locationResponse, noiseResponses, response.getString("source"));
+
+                break;
+
             case "alltime":
                 response = displayService.allTimeData(id);
                 locationResponse = response.getJsonObject("location").mapTo(LocationResponse.class);
@@ -83,9 +131,86 @@ public class DisplayResource {
         return Response.ok(displayResponse).build();
     }
     
+    // Example: /api/range/{id}?from=2026-10-13T00:00:00&to=2026-10-14T00:00:00&step=PT6H
+    @GET
+    @Path("/range/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(4)
+    public Response sendRangeData(@PathParam("id") UUID id,
+                                  @QueryParam("from") String from,
+                                  @QueryParam("to") String to,
+                                  @QueryParam("step") @DefaultValue("PT1H") String step) {
+        if (from == null || to == null) {
+            ERROR_400.throwException("Missing from/to");
+        }
+        LocalDateTime fromDate = null;
+        LocalDateTime toDate = null;
+        Duration stepDuration = null;
+        try {
+            fromDate = LocalDateTime.parse(from);
+            toDate = LocalDateTime.parse(to);
+            stepDuration = Duration.parse(step);
+        } catch (DateTimeParseException e) {
+            ERROR_400.throwException("Invalid range: " + e.getParsedString());
+        }
+        if (!fromDate.isBefore(toDate)) {
+            ERROR_400.throwException("from must be before to");
+        }
+        if (stepDuration.getSeconds() < 1 || stepDuration.getNano() != 0) {
+            ERROR_400.throwException("step must be a whole number of seconds");
+        }
+        if (Duration.between(fromDate, toDate).getSeconds() / stepDuration.getSeconds() > MAX_BUCKETS) {
+            ERROR_400.throwException("Too many buckets, use a larger step");
+        }
+
+        JsonObject response = rangeService.rangeData(id, fromDate, toDate, stepDuration);
+        LocationResponse locationResponse = response.getJsonObject("location").mapTo(LocationResponse.class);
+        List<NoiseResponse> noiseResponses = response.getJsonArray("noises").stream()
+                .map(obj -> ((JsonObject) obj).mapTo(NoiseResponse.class))
+                .toList();
+        RangeResponse rangeResponse = new RangeResponse(locationResponse, noiseResponses,
+                response.getString("source"), response.getString("resolution"));
+        return Response.ok(rangeResponse).build();
+    }
+
+    // Example: /api/archive/{id}?from=2026-01-13T00:00:00&to=2026-01-14T00:00:00
+    @GET
+    @Path("/archive/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(4)
+    public Response sendArchivedData(@PathParam("id") UUID id,
+                                     @QueryParam("from") String from,
+                                     @QueryParam("to") String to) {
+        if (from == null || to == null) {
+            ERROR_400.throwException("Missing from/to");
+        }
+        LocalDateTime fromDate = null;
+        LocalDateTime toDate = null;
+        try {
+            fromDate = LocalDateTime.parse(from);
+            toDate = LocalDateTime.parse(to);
+        } catch (DateTimeParseException e) {
+            ERROR_400.throwException("Invalid range: " + e.getParsedString());
+        }
+        if (!fromDate.isBefore(toDate)) {
+            ERROR_400.throwException("from must be before to");
+        }
+        if (Duration.between(fromDate, toDate).compareTo(Duration.ofDays(MAX_ARCHIVE_DAYS)) > 0) {
+            ERROR_400.throwException("At most " + MAX_ARCHIVE_DAYS + " days of archived readings per request");
+        }
+
+        JsonObject response = archiveService.archivedData(id, fromDate, toDate);
+        LocationResponse locationResponse = response.getJsonObject("location").mapTo(LocationResponse.class);
+        List<NoiseResponse> noiseResponses = response.getJsonArray("noises").stream()
+                .map(obj -> ((JsonObject) obj).mapTo(NoiseResponse.class))
+                .toList();
+        return Response.ok(new DisplayResponse(locationResponse, noiseResponses, response.getString("source"))).build();
+    }
+
     @GET
     @Path("/allsensors")
     @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 5, perBatch = 4) // Includes the Sensor.Community import
     public Response allSensors() {
         List<JsonObject> response = displayService.allSensors();
         return Response.ok(response).build();
@@ -94,9 +219,10 @@ public class DisplayResource {
     @GET
     @Path("/recentdata/{id}")
     @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(4)
     public NoiseResponse recentDataForOneSensor(@PathParam("id") UUID id) {
         JsonObject response = displayService.recentData(id);
-        System.out.println(response);
+        logger.debug("Recent data: ", response);
         java.time.LocalDateTime timestamp = null;
         if (response.getString("timestamp") != null) {
             timestamp = java.time.LocalDateTime.parse(response.getString("timestamp"), java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
@@ -104,7 +230,7 @@ public class DisplayResource {
         Float laeq = response.getString("noise_LAeq") != null ? Float.parseFloat(response.getString("noise_LAeq")) : null;
         Float lamin = response.getString("noise_LA_min") != null ? Float.parseFloat(response.getString("noise_LA_min")) : null;
         Float lamax = response.getString("noise_LA_max") != null ? Float.parseFloat(response.getString("noise_LA_max")) : null;
-        NoiseResponse noiseResponse = new NoiseResponse(timestamp, laeq, lamax, lamin);
+        NoiseResponse noiseResponse = new NoiseResponse(timestamp, laeq, lamax, lamin, null, null, null);
         return noiseResponse;
     }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package noisesensor.presentation.rest;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import noisesensor.domain.service.HeatmapService;
+
+import static noisesensor.errors.ErrorsCode.ERROR_404;
+
+@Path("/api")
+public class HeatmapResource {
+
+    @Inject
+    HeatmapService heatmapService;
+
+    // Same z/x/y scheme as the OpenStreetMap tiles used by the map
+    @GET
+    @Path("/heatmap/{z}/{x}/{y}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response heatmapTile(@PathParam("z") int z,
+                                @PathParam("x") long x,
+                                @PathParam("y") long y) {
+        if (!heatmapService.supportsZoom(z) || x < 0 || y < 0 || x >= (1L << z) || y >= (1L << z)) {
+            ERROR_404.throwException("No heatmap tile " + z + "/" + x + "/" + y);
+        }
+        return Response.ok(heatmapService.tile(z, x, y))
+                .header("Cache-Control", "max-age=60")
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package noisesensor.presentation.rest;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import noisesensor.domain.service.LeaderboardService;
+
+import java.util.List;
+
+import io.vertx.core.json.JsonObject;
+
+import static noisesensor.errors.ErrorsCode.ERROR_400;
+
+@Path("/api")
+public class LeaderboardResource {
+
+    private static final int MAX_LIMIT = 100;
+
+    @Inject
+    LeaderboardService leaderboardService;
+
+    // Example: /api/leaderboard?period=today&order=quietest&country=DE&limit=10
+    @GET
+    @Path("/leaderboard")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response leaderboard(@QueryParam("period") @DefaultValue("now") String period,
+                                @QueryParam("order") @DefaultValue("loudest") String order,
+                                @QueryParam("country") String country,
+                                @QueryParam("limit") @DefaultValue("10") int limit) {
+        LeaderboardService.Period resolvedPeriod = null;
+        switch (period) {
+            case "now":
+                resolvedPeriod = LeaderboardService.Period.NOW;
+                break;
+            case "today":
+                resolvedPeriod = LeaderboardService.Period.TODAY;
+                break;
+            default:
+                ERROR_400.throwException("Unknown period: " + period);
+        }
+        if (!order.equals("loudest") && !order.equals("quietest")) {
+            ERROR_400.throwException("Unknown order: " + order);
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            ERROR_400.throwException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        List<JsonObject> response = leaderboardService.top(resolvedPeriod, order.equals("loudest"), country, limit);
+        return Response.ok(response).build();
+    }
+}
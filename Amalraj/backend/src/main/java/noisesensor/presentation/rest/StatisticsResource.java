@@ -0,0 +1,21 @@
+package noisesensor.presentation.rest;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import noisesensor.domain.service.CacheStatisticsService;
+
+@Path("/api")
+public class StatisticsResource {
+
+    @Inject
+    CacheStatisticsService cacheStatisticsService;
+
+    @GET
+    @Path("/stats/cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response cacheStatistics() {
+        return Response.ok(cacheStatisticsService.cacheStatistics()).build();
+    }
+}
@@ -0,0 +1,51 @@
+package noisesensor.presentation.rest;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import noisesensor.domain.service.ReadingStreamService;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static noisesensor.errors.ErrorsCode.ERROR_400;
+
+@Path("/api")
+public class StreamResource {
+
+    private static final int MAX_SENSORS_PER_CONNECTION = 50;
+
+    @Inject
+    ReadingStreamService readingStreamService;
+
+    // Example: /api/stream?sensors={id1},{id2}
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamReadings(@QueryParam("sensors") String sensors,
+                               @Context SseEventSink sink,
+                               @Context Sse sse) {
+        if (sensors == null || sensors.isBlank()) {
+            ERROR_400.throwException("Missing sensors");
+        }
+        List<UUID> ids = null;
+        try {
+            ids = Arrays.stream(sensors.split(","))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .map(UUID::fromString)
+                    .distinct()
+                    .toList();
+        } catch (IllegalArgumentException e) {
+            ERROR_400.throwException("Invalid sensor id");
+        }
+        if (ids.size() > MAX_SENSORS_PER_CONNECTION) {
+            ERROR_400.throwException("At most " + MAX_SENSORS_PER_CONNECTION + " sensors per connection");
+        }
+        readingStreamService.subscribe(ids, sink, sse);
+    }
+}
@@ -0,0 +1,111 @@
+package noisesensor.utils;
+
+// Alert rules of one sensor, evaluated reading by reading at constant cost:
+// - threshold: LAeq above 'level' for at least 'seconds', cleared by the first reading at or below it
+// - jump: LAeq at least 'delta' dB above the energy mean of the previous 'baselineReadings' readings,
+//   cleared once a reading is back within delta / 2 of the baseline
+// The baseline is a ring of reading energies with a running sum. Readings older than the latest are ignored.
+// Not thread safe, callers synchronize.
+public class AlertWindow {
+
+    public enum Rule { THRESHOLD, JUMP }
+
+    // Transitions returned by add, or-ed together
+    public static final int THRESHOLD_RAISED = 1;
+    public static final int THRESHOLD_CLEARED = 2;
+    public static final int JUMP_RAISED = 4;
+    public static final int JUMP_CLEARED = 8;
+
+    public record Rules(float level, long seconds, float delta, int baselineReadings, int minBaseline) {
+    }
+
+    private final Rules rules;
+    private final double[] energies;
+    private int next;
+    private int size;
+    private double energySum;
+    private long latestSecond = Long.MIN_VALUE;
+
+    private long aboveSince = -1;
+    // Second of the reading that raised the alert, -1 when not active
+    private long thresholdRaised = -1;
+    private long jumpRaised = -1;
+    private float baseline;
+
+    public AlertWindow(Rules rules) {
+        this.rules = rules;
+        this.energies = new double[Math.max(1, rules.baselineReadings())];
+    }
+
+    public int add(long second, float laeq) {
+        if (second <= latestSecond) {
+            return 0;
+        }
+        latestSecond = second;
+        int transitions = 0;
+
+        if (laeq > rules.level()) {
+            if (aboveSince < 0) {
+                aboveSince = second;
+            }
+            if (thresholdRaised < 0 && second - aboveSince >= rules.seconds()) {
+                thresholdRaised = second;
+                transitions |= THRESHOLD_RAISED;
+            }
+        } else {
+            aboveSince = -1;
+            if (thresholdRaised >= 0) {
+                thresholdRaised = -1;
+                transitions |= THRESHOLD_CLEARED;
+            }
+        }
+
+        // Compared with the baseline before the reading joins it
+        if (size >= rules.minBaseline() && size > 0) {
+            baseline = Decibels.energyMean(energySum, size);
+            float rise = laeq - baseline;
+            if (jumpRaised < 0 && rise >= rules.delta()) {
+                jumpRaised = second;
+                transitions |= JUMP_RAISED;
+            } else if (jumpRaised >= 0 && rise < rules.delta() / 2) {
+                jumpRaised = -1;
+                transitions |= JUMP_CLEARED;
+            }
+        }
+        push(Decibels.toEnergy(laeq));
+        return transitions;
+    }
+
+    private void push(double energy) {
+        if (size == energies.length) {
+            energySum -= energies[next];
+        } else {
+            size++;
+        }
+        energies[next] = energy;
+        energySum += energy;
+        next++;
+        if (next == energies.length) {
+            next = 0;
+            // Once per lap the sum is recomputed, so rounding errors of the running sum do not add up
+            energySum = 0;
+            for (int i = 0; i < size; i++) {
+                energySum += energies[i];
+            }
+        }
+    }
+
+    // Second of the reading that raised the rule's alert, -1 when it is not active
+    public long raisedAt(Rule rule) {
+        return rule == Rule.THRESHOLD ? thresholdRaised : jumpRaised;
+    }
+
+    // Baseline the latest reading was compared with
+    public float baseline() {
+        return baseline;
+    }
+
+    public long latestSecond() {
+        return latestSecond;
+    }
+}
@@ -0,0 +1,21 @@
+package noisesensor.utils;
+
+// Sound levels are logarithmic, so LAeq values are averaged on their energy
+// (10^(L/10)) and converted back, never averaged directly.
+public final class Decibels {
+
+    private Decibels() {
+    }
+
+    public static double toEnergy(float level) {
+        return Math.pow(10.0, level / 10.0);
+    }
+
+    public static float fromEnergy(double energy) {
+        return (float) (10.0 * Math.log10(energy));
+    }
+
+    public static float energyMean(double energySum, long count) {
+        return count > 0 ? fromEnergy(energySum / count) : 0f;
+    }
+}
@@ -0,0 +1,253 @@
+package noisesensor.utils;
+
+import java.util.Arrays;
+
+// Compressed block of one sensor's readings in the style of Facebook's Gorilla:
+// timestamps (epoch seconds) as delta-of-delta, each level series as the XOR with its previous value.
+// Regular readings of a stable level cost a few bits each instead of a row.
+// Block layout: reading count (32 bits), then the bit stream.
+public final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    public static final class Writer {
+
+        private final BitWriter bits = new BitWriter();
+        private final FloatSeries laeq = new FloatSeries();
+        private final FloatSeries lamax = new FloatSeries();
+        private final FloatSeries lamin = new FloatSeries();
+        private int count;
+        private long previousSecond;
+        private long previousDelta;
+
+        // Readings are expected in time order, an earlier one only costs more bits
+        public void add(long second, float laeq, float lamax, float lamin) {
+            if (count == 0) {
+                bits.write(second, 64);
+            } else {
+                long delta = second - previousSecond;
+                writeDeltaOfDelta(delta - previousDelta);
+                previousDelta = delta;
+            }
+            previousSecond = second;
+            this.laeq.write(bits, laeq, count == 0);
+            this.lamax.write(bits, lamax, count == 0);
+            this.lamin.write(bits, lamin, count == 0);
+            count++;
+        }
+
+        private void writeDeltaOfDelta(long dod) {
+            if (dod == 0) {
+                bits.write(0, 1);
+            } else if (dod >= -63 && dod <= 64) {
+                bits.write(0b10, 2);
+                bits.write(dod + 63, 7);
+            } else if (dod >= -255 && dod <= 256) {
+                bits.write(0b110, 3);
+                bits.write(dod + 255, 9);
+            } else if (dod >= -2047 && dod <= 2048) {
+                bits.write(0b1110, 4);
+                bits.write(dod + 2047, 12);
+            } else {
+                bits.write(0b1111, 4);
+                bits.write(dod, 64);
+            }
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public byte[] toBytes() {
+            byte[] stream = bits.toBytes();
+            byte[] block = new byte[4 + stream.length];
+            block[0] = (byte) (count >>> 24);
+            block[1] = (byte) (count >>> 16);
+            block[2] = (byte) (count >>> 8);
+            block[3] = (byte) count;
+            System.arraycopy(stream, 0, block, 4, stream.length);
+            return block;
+        }
+    }
+
+    // Decodes a block one reading at a time, without allocating per reading
+    public static final class Reader {
+
+        private final BitReader bits;
+        private final FloatSeries laeqSeries = new FloatSeries();
+        private final FloatSeries lamaxSeries = new FloatSeries();
+        private final FloatSeries laminSeries = new FloatSeries();
+        private final int count;
+        private int read;
+        private long second;
+        private long delta;
+        private float laeq;
+        private float lamax;
+        private float lamin;
+
+        public Reader(byte[] block) {
+            count = ((block[0] & 0xff) << 24) | ((block[1] & 0xff) << 16) | ((block[2] & 0xff) << 8) | (block[3] & 0xff);
+            bits = new BitReader(block, 4);
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public boolean next() {
+            if (read == count) {
+                return false;
+            }
+            if (read == 0) {
+                second = bits.read(64);
+            } else {
+                delta += readDeltaOfDelta();
+                second += delta;
+            }
+            laeq = laeqSeries.read(bits, read == 0);
+            lamax = lamaxSeries.read(bits, read == 0);
+            lamin = laminSeries.read(bits, read == 0);
+            read++;
+            return true;
+        }
+
+        private long readDeltaOfDelta() {
+            if (bits.read(1) == 0) {
+                return 0;
+            }
+            if (bits.read(1) == 0) {
+                return bits.read(7) - 63;
+            }
+            if (bits.read(1) == 0) {
+                return bits.read(9) - 255;
+            }
+            if (bits.read(1) == 0) {
+                return bits.read(12) - 2047;
+            }
+            return bits.read(64);
+        }
+
+        public long second() {
+            return second;
+        }
+
+        public float laeq() {
+            return laeq;
+        }
+
+        public float lamax() {
+            return lamax;
+        }
+
+        public float lamin() {
+            return lamin;
+        }
+    }
+
+    // XOR of consecutive values: '0' when equal, '10' when the meaningful bits fit the previous window,
+    // '11' + 5 bits of leading zeros + 5 bits of length - 1 + the meaningful bits otherwise
+    private static final class FloatSeries {
+
+        private int previous;
+        private int leading = Integer.MAX_VALUE;
+        private int trailing;
+
+        void write(BitWriter bits, float value, boolean first) {
+            int current = Float.floatToRawIntBits(value);
+            if (first) {
+                bits.write(current & 0xffffffffL, 32);
+                previous = current;
+                return;
+            }
+            int xor = current ^ previous;
+            previous = current;
+            if (xor == 0) {
+                bits.write(0, 1);
+                return;
+            }
+            int lead = Math.min(Integer.numberOfLeadingZeros(xor), 31);
+            int trail = Integer.numberOfTrailingZeros(xor);
+            if (leading != Integer.MAX_VALUE && lead >= leading && trail >= trailing) {
+                bits.write(0b10, 2);
+                bits.write((xor >>> trailing) & mask(32 - leading - trailing), 32 - leading - trailing);
+                return;
+            }
+            leading = lead;
+            trailing = trail;
+            int length = 32 - lead - trail;
+            bits.write(0b11, 2);
+            bits.write(lead, 5);
+            bits.write(length - 1, 5);
+            bits.write((xor >>> trail) & mask(length), length);
+        }
+
+        float read(BitReader bits, boolean first) {
+            if (first) {
+                previous = (int) bits.read(32);
+                return Float.intBitsToFloat(previous);
+            }
+            if (bits.read(1) == 0) {
+                return Float.intBitsToFloat(previous);
+            }
+            if (bits.read(1) == 1) {
+                leading = (int) bits.read(5);
+                int length = (int) bits.read(5) + 1;
+                trailing = 32 - leading - length;
+            }
+            int length = 32 - leading - trailing;
+            int xor = (int) (bits.read(length) << trailing);
+            previous ^= xor;
+            return Float.intBitsToFloat(previous);
+        }
+
+        private static long mask(int length) {
+            return length == 64 ? -1L : (1L << length) - 1;
+        }
+    }
+
+    private static final class BitWriter {
+
+        private byte[] bytes = new byte[64];
+        private long bitCount;
+
+        // Writes the 'length' low bits of value, most significant first
+        void write(long value, int length) {
+            for (int i = length - 1; i >= 0; i--) {
+                int index = (int) (bitCount >>> 3);
+                if (index == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                if (((value >>> i) & 1) != 0) {
+                    bytes[index] |= (byte) (0x80 >>> (bitCount & 7));
+                }
+                bitCount++;
+            }
+        }
+
+        byte[] toBytes() {
+            return Arrays.copyOf(bytes, (int) ((bitCount + 7) >>> 3));
+        }
+    }
+
+    private static final class BitReader {
+
+        private final byte[] bytes;
+        private long position;
+
+        BitReader(byte[] bytes, int offset) {
+            this.bytes = bytes;
+            this.position = (long) offset * 8;
+        }
+
+        long read(int length) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                int bit = (bytes[(int) (position >>> 3)] >>> (7 - (position & 7))) & 1;
+                value = (value << 1) | bit;
+                position++;
+            }
+            return value;
+        }
+    }
+}
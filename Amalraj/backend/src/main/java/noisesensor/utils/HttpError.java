@@ -23,6 +23,15 @@ public class HttpError implements Supplier<RuntimeException>, IHttpError {
                         .build());
     }
 
+    @Override
+    public RuntimeException getWithHeader(String header, Object value, Object... args) {
+        return new WebApplicationException(
+                status(status)
+                        .header(header, value)
+                        .entity(new ErrorInfo(String.format(message, args)))
+                        .build());
+    }
+
     @Override
     public RuntimeException get() {
         return createError();
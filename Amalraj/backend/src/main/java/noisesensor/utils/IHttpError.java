@@ -4,4 +4,7 @@ public interface IHttpError {
     RuntimeException get(Object... args);
 
     void throwException(Object... args);
+
+    // Same error with a response header, e.g. Retry-After
+    RuntimeException getWithHeader(String header, Object value, Object... args);
 }
@@ -0,0 +1,69 @@
+package noisesensor.utils;
+
+// Running statistics of a series of readings: count, LAeq energy sum, max of LAmax, min of LAmin
+// and the histogram of LAeq the statistical levels are read from.
+// Not thread safe, callers synchronize.
+public class LevelAccumulator {
+
+    private long count;
+    private double energySum;
+    private float max = Float.NEGATIVE_INFINITY;
+    private float min = Float.POSITIVE_INFINITY;
+    private final LevelHistogram histogram = new LevelHistogram();
+
+    public void add(float laeq, float lamax, float lamin) {
+        count++;
+        energySum += Decibels.toEnergy(laeq);
+        max = Math.max(max, lamax);
+        min = Math.min(min, lamin);
+        histogram.add(laeq);
+    }
+
+    public void merge(LevelAccumulator other) {
+        merge(other.count, other.energySum, other.max, other.min, other.histogram.toArray());
+    }
+
+    // 'histogram' may be null for aggregates stored before histograms existed
+    public void merge(long count, double energySum, float max, float min, int[] histogram) {
+        if (count == 0) {
+            return;
+        }
+        this.count += count;
+        this.energySum += energySum;
+        this.max = Math.max(this.max, max);
+        this.min = Math.min(this.min, min);
+        this.histogram.merge(histogram);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getEnergySum() {
+        return energySum;
+    }
+
+    public float getLaeq() {
+        return Decibels.energyMean(energySum, count);
+    }
+
+    public float getMax() {
+        return max;
+    }
+
+    public float getMin() {
+        return min;
+    }
+
+    public int[] getHistogram() {
+        return histogram.toArray();
+    }
+
+    public Float exceeded(int percent) {
+        return histogram.exceeded(percent);
+    }
+}
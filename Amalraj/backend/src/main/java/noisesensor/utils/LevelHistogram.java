@@ -0,0 +1,87 @@
+package noisesensor.utils;
+
+import java.util.Arrays;
+
+// Counts of LAeq readings in 1 dB bins, from 0 dB to MAX_LEVEL (louder readings land in the last bin).
+// Histograms of the same bins merge by adding counts, so statistical levels of a week
+// come from the histograms of its days. Not thread safe, callers synchronize.
+public class LevelHistogram {
+
+    public static final int BINS = 150;
+
+    // Stored trimmed after the last non-empty bin, an empty histogram is a zero length array
+    private int[] counts = new int[0];
+    private long total;
+
+    // Histogram of stored counts, null counts (rows written before histograms existed) give an empty one
+    public static LevelHistogram of(int[] counts) {
+        LevelHistogram histogram = new LevelHistogram();
+        histogram.merge(counts);
+        return histogram;
+    }
+
+    public static int binOf(float level) {
+        if (!(level > 0)) {
+            return 0;
+        }
+        return Math.min((int) level, BINS - 1);
+    }
+
+    public void add(float level) {
+        int bin = binOf(level);
+        ensureLength(bin + 1);
+        counts[bin]++;
+        total++;
+    }
+
+    public void merge(LevelHistogram other) {
+        merge(other.counts);
+    }
+
+    public void merge(int[] other) {
+        if (other == null) {
+            return;
+        }
+        ensureLength(Math.min(other.length, BINS));
+        for (int i = 0; i < other.length; i++) {
+            counts[Math.min(i, BINS - 1)] += other[i];
+            total += other[i];
+        }
+    }
+
+    public boolean isEmpty() {
+        return total == 0;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int[] toArray() {
+        return counts.clone();
+    }
+
+    // Level exceeded during 'percent' of the readings, L10 is exceeded(10).
+    // Readings are assumed spread evenly inside their bin.
+    public Float exceeded(int percent) {
+        if (total == 0) {
+            return null;
+        }
+        double rank = total * (100 - percent) / 100.0;
+        long below = 0;
+        for (int bin = 0; bin < counts.length; bin++) {
+            int count = counts[bin];
+            if (count > 0 && below + count >= rank) {
+                return (float) (bin + (rank - below) / count);
+            }
+            below += count;
+        }
+        return (float) counts.length;
+    }
+
+    private void ensureLength(int length) {
+        if (counts.length < length) {
+            counts = Arrays.copyOf(counts, length);
+        }
+    }
+}
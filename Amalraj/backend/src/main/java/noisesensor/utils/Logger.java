@@ -1,45 +1,245 @@
 package noisesensor.utils;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+
 import java.io.BufferedWriter;
 import java.io.FileWriter;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Application log. Callers only put an entry in a bounded queue, one writer thread formats and writes
+// them to the log files (or the console without files). When the queue is full entries are dropped
+// and counted, a request thread never waits for I/O.
+// A message with a detail is only concatenated by the writer, after the level check.
 @ApplicationScoped
 public class Logger {
-    @ConfigProperty(name="LOG_FILE")
-    String logFile;
-    @ConfigProperty(name="ERROR_LOG_FILE")
-    String errorLogFile;
+
+    public enum Level { DEBUG, INFO, WARN, ERROR }
 
     private static final String RESET_TEXT = "\u001B[0m";
     private static final String RED_TEXT = "\u001B[31m";
     private static final String GREEN_TEXT = "\u001B[32m";
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("dd/MM/yy - HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    private static final int BATCH = 256;
+
+    @ConfigProperty(name = "LOG_FILE")
+    Optional<String> logFile = Optional.empty();
+
+    @ConfigProperty(name = "ERROR_LOG_FILE")
+    Optional<String> errorLogFile = Optional.empty();
+
+    @ConfigProperty(name = "noisesensor.log.level", defaultValue = "INFO")
+    Level level = Level.INFO;
+
+    @ConfigProperty(name = "noisesensor.log.queue-size", defaultValue = "8192")
+    int queueSize = 8192;
+
+    // sampled() messages are written once every sampleEvery calls
+    @ConfigProperty(name = "noisesensor.log.sample-every", defaultValue = "100")
+    int sampleEvery = 100;
+
+    private record Entry(long millis, Level level, String message, Object detail) {
+    }
+
+    private BlockingQueue<Entry> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Map<String, AtomicLong> samples = new ConcurrentHashMap<>();
+    private Thread writerThread;
+    private volatile boolean running;
+
+    // Writer thread state
+    private final StringBuilder line = new StringBuilder(256);
+    private Writer out;
+    private Writer errors;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueSize);
+        running = true;
+        writerThread = new Thread(this::drain, "noisesensor-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(this.level) >= 0;
+    }
+
+    public void debug(String message) {
+        enqueue(Level.DEBUG, message, null);
+    }
+
+    public void debug(String message, Object detail) {
+        enqueue(Level.DEBUG, message, detail);
+    }
+
+    public void info(String message) {
+        enqueue(Level.INFO, message, null);
+    }
+
+    public void info(String message, Object detail) {
+        enqueue(Level.INFO, message, detail);
+    }
+
+    public void warn(String message) {
+        enqueue(Level.WARN, message, null);
+    }
+
+    public void warn(String message, Object detail) {
+        enqueue(Level.WARN, message, detail);
+    }
+
+    public void error(String message) {
+        enqueue(Level.ERROR, message, null);
+    }
+
+    public void error(String message, Object detail) {
+        enqueue(Level.ERROR, message, detail);
+    }
 
-    private static String timestamp() {
-        return new SimpleDateFormat("dd/MM/yy - HH:mm:ss")
-                .format(Calendar.getInstance().getTime());
+    // Per-request messages: written at 'level' once every sampleEvery calls with the same message
+    public void sampled(Level level, String message, Object detail) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        long count = samples.computeIfAbsent(message, m -> new AtomicLong()).getAndIncrement();
+        if (count % sampleEvery == 0) {
+            enqueue(level, message, detail);
+        }
     }
+
     public void log(String message) {
+        info(message);
+    }
+
+    public void logError(String message) {
+        error(message);
+    }
+
+    private void enqueue(Level level, String message, Object detail) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        if (!queue.offer(new Entry(System.currentTimeMillis(), level, message, detail))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH - 1);
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    write(new Entry(System.currentTimeMillis(), Level.WARN, "Log queue full, dropped messages: ", lost));
+                }
+                for (Entry entry : batch) {
+                    write(entry);
+                }
+                batch.clear();
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Entries fail one by one in write, this is the writer itself failing; it must not stop
+                System.err.println("Log writer failed, " + batch.size() + " messages lost: " + e);
+                batch.clear();
+            }
+        }
+        flush();
+    }
+
+    private void write(Entry entry) {
+        boolean error = entry.level().compareTo(Level.WARN) >= 0;
+        line.setLength(0);
+        line.append(" [");
+        TIMESTAMP.formatTo(Instant.ofEpochMilli(entry.millis()), line);
+        line.append("] ").append(entry.level()).append(' ').append(entry.message());
+        if (entry.detail() != null) {
+            // A failing toString() only loses the detail, the entry is still written
+            int length = line.length();
+            try {
+                line.append(entry.detail());
+            } catch (RuntimeException e) {
+                line.setLength(length);
+                line.append("<detail failed: ").append(e).append('>');
+            }
+        }
+        line.append('\n');
         try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(logFile, true));
-            writer.write(GREEN_TEXT + " ["+timestamp()+"] " + message + " " + RESET_TEXT + "\n");
+            Writer writer = error ? errorWriter() : outWriter();
+            if (writer != null) {
+                writer.append(line);
+                return;
+            }
+        } catch (IOException e) {
+            // Fall back to the console below
+        }
+        PrintStream console = error ? System.err : System.out;
+        console.print(error ? RED_TEXT : GREEN_TEXT);
+        console.append(line, 0, line.length() - 1);
+        console.println(RESET_TEXT);
+    }
 
-            writer.close();
-        } catch (Exception e) {
-            System.out.println(GREEN_TEXT + " ["+timestamp()+"] " + message + " " + RESET_TEXT + "\n");
+    private Writer outWriter() throws IOException {
+        if (out == null && logFile.isPresent()) {
+            out = new BufferedWriter(new FileWriter(logFile.get(), true));
         }
+        return out;
     }
-    public void logError(String message){
-       try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(errorLogFile,true));
-            writer.write(RED_TEXT + " ["+timestamp()+"] " + message + " " + RESET_TEXT + "\n");
 
-            writer.close();
-        } catch (Exception e) {
-           System.err.println(RED_TEXT + " ["+timestamp()+"] " + message + " " + RESET_TEXT + "\n");
+    private Writer errorWriter() throws IOException {
+        if (errors == null && errorLogFile.isPresent()) {
+            errors = new BufferedWriter(new FileWriter(errorLogFile.get(), true));
+        }
+        return errors;
+    }
+
+    private void flush() {
+        try {
+            if (out != null) {
+                out.flush();
+            }
+            if (errors != null) {
+                errors.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Log file write failed: " + e);
         }
+        System.out.flush();
     }
 }
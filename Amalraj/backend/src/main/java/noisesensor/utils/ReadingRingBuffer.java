@@ -0,0 +1,188 @@
+package noisesensor.utils;
+
+// Time-ordered readings of one sensor kept in primitive arrays:
+// epoch seconds and (LAeq, LAmax, LAmin) float triples.
+// Once maxCapacity is reached the oldest reading is overwritten.
+public class ReadingRingBuffer {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int BYTES_PER_READING = Long.BYTES + 3 * Float.BYTES;
+
+    private final int maxCapacity;
+
+    private long[] seconds;
+    private float[] levels;
+    // Index of the oldest reading
+    private int head;
+    private int size;
+
+    public ReadingRingBuffer(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        int capacity = Math.min(INITIAL_CAPACITY, maxCapacity);
+        this.seconds = new long[capacity];
+        this.levels = new float[capacity * 3];
+    }
+
+    public static long bytesFor(int capacity) {
+        return (long) capacity * BYTES_PER_READING;
+    }
+
+    // Returns the number of bytes the buffer grew by
+    public synchronized long add(long epochSecond, float laeq, float lamax, float lamin) {
+        long grown = 0;
+        if (size == seconds.length) {
+            if (seconds.length < maxCapacity) {
+                grown = resize(Math.min(maxCapacity, seconds.length * 2));
+            } else if (epochSecond < seconds[head]) {
+                // Older than everything we can keep
+                return 0;
+            } else {
+                head = (head + 1) % seconds.length;
+                size--;
+            }
+        }
+
+        // Readings almost always arrive in order, so this loop rarely runs
+        int position = size;
+        while (position > 0 && seconds[slot(position - 1)] > epochSecond) {
+            int from = slot(position - 1);
+            int to = slot(position);
+            seconds[to] = seconds[from];
+            System.arraycopy(levels, from * 3, levels, to * 3, 3);
+            position--;
+        }
+        int slot = slot(position);
+        seconds[slot] = epochSecond;
+        levels[slot * 3] = laeq;
+        levels[slot * 3 + 1] = lamax;
+        levels[slot * 3 + 2] = lamin;
+        size++;
+        return grown;
+    }
+
+    // Drops readings older than epochSecond, returns the number of bytes released
+    public synchronized long evictBefore(long epochSecond) {
+        while (size > 0 && seconds[head] < epochSecond) {
+            head = (head + 1) % seconds.length;
+            size--;
+        }
+        if (size < seconds.length / 4 && seconds.length > INITIAL_CAPACITY) {
+            return -resize(Math.max(INITIAL_CAPACITY, size * 2));
+        }
+        return 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long sizeInBytes() {
+        return bytesFor(seconds.length);
+    }
+
+    public synchronized boolean isFull() {
+        return size == maxCapacity;
+    }
+
+    // Epoch second of the oldest reading, or Long.MAX_VALUE when empty
+    public synchronized long oldest() {
+        return size > 0 ? seconds[head] : Long.MAX_VALUE;
+    }
+
+    // Epoch second of the most recent reading, or Long.MIN_VALUE when empty
+    public synchronized long newest() {
+        return size > 0 ? seconds[slot(size - 1)] : Long.MIN_VALUE;
+    }
+
+    public synchronized Slice latest() {
+        return size > 0 ? copy(size - 1, size) : new Slice(new long[0], new float[0]);
+    }
+
+    // Copy of the readings in [fromSecond, toSecond)
+    public synchronized Slice between(long fromSecond, long toSecond) {
+        int first = lowerBound(fromSecond);
+        int last = lowerBound(toSecond);
+        return copy(first, last);
+    }
+
+    private Slice copy(int first, int last) {
+        int count = Math.max(0, last - first);
+        long[] outSeconds = new long[count];
+        float[] outLevels = new float[count * 3];
+        for (int i = 0; i < count; i++) {
+            int slot = slot(first + i);
+            outSeconds[i] = seconds[slot];
+            System.arraycopy(levels, slot * 3, outLevels, i * 3, 3);
+        }
+        return new Slice(outSeconds, outLevels);
+    }
+
+    // First logical position whose timestamp is >= epochSecond
+    private int lowerBound(long epochSecond) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (seconds[slot(mid)] < epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int slot(int position) {
+        return (head + position) % seconds.length;
+    }
+
+    private long resize(int capacity) {
+        long[] newSeconds = new long[capacity];
+        float[] newLevels = new float[capacity * 3];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            newSeconds[i] = seconds[slot];
+            System.arraycopy(levels, slot * 3, newLevels, i * 3, 3);
+        }
+        long delta = bytesFor(capacity) - bytesFor(seconds.length);
+        seconds = newSeconds;
+        levels = newLevels;
+        head = 0;
+        return delta;
+    }
+
+    // Immutable copy of consecutive readings
+    public static final class Slice {
+        private final long[] seconds;
+        private final float[] levels;
+
+        Slice(long[] seconds, float[] levels) {
+            this.seconds = seconds;
+            this.levels = levels;
+        }
+
+        public int size() {
+            return seconds.length;
+        }
+
+        public boolean isEmpty() {
+            return seconds.length == 0;
+        }
+
+        public long second(int i) {
+            return seconds[i];
+        }
+
+        public float laeq(int i) {
+            return levels[i * 3];
+        }
+
+        public float lamax(int i) {
+            return levels[i * 3 + 1];
+        }
+
+        public float lamin(int i) {
+            return levels[i * 3 + 2];
+        }
+    }
+}
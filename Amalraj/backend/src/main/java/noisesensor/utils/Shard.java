@@ -0,0 +1,57 @@
+package noisesensor.utils;
+
+import java.util.UUID;
+
+// One of 'count' parts of the sensors, for splitting a job between nodes (see JobLeases).
+// Sensor UUIDs are random, shard i holds a range of them in Postgres' uuid order: the ids between
+// lowest() and highest(), split on their leading 32 bits. Sensor.Community ids are sequential and
+// mostly grow, they are mixed before the split so new ids do not all land in the last shard.
+public record Shard(int index, int count) {
+
+    public static final Shard ALL = new Shard(0, 1);
+
+    public Shard {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard " + index + " of " + count);
+        }
+    }
+
+    public boolean contains(UUID id) {
+        return of(id.getMostSignificantBits() >>> 32) == index;
+    }
+
+    public boolean contains(int communityId) {
+        // Murmur3 finalizer
+        int h = communityId;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return of(h & 0xffffffffL) == index;
+    }
+
+    public UUID lowest() {
+        return new UUID(start(index) << 32, 0);
+    }
+
+    public UUID highest() {
+        return index == count - 1 ? new UUID(-1, -1) : new UUID((start(index + 1) << 32) - 1, -1);
+    }
+
+    // "index/count", how a shard is recorded
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+
+    // Shard of an unsigned 32 bit value
+    private int of(long value) {
+        return (int) ((value * count) >>> 32);
+    }
+
+    // Smallest 32 bit value of shard i
+    private long start(int i) {
+        return ((long) i << 32) / count + (((long) i << 32) % count == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,43 @@
+package noisesensor.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket of 'burst' tokens refilled at 'rate' tokens per second, kept as a single
+// "theoretical arrival time" (GCRA): the time at which the bucket would be full again.
+// Taking a token moves it one interval ahead with a compare-and-set, so callers never block.
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    public TokenBucket(double rate, int burst) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / rate));
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+    }
+
+    // 0 when a token was taken, otherwise the nanoseconds until one is available
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Gives back a token taken by tryAcquire, when the request was refused for another reason
+    public void release() {
+        fullAt.addAndGet(-intervalNanos);
+    }
+
+    // True when the bucket is full, it then behaves like a new one
+    public boolean isFull(long nowNanos) {
+        return fullAt.get() <= nowNanos;
+    }
+}
@@ -0,0 +1,149 @@
+package noisesensor.data.schema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.UUID;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import noisesensor.domain.service.QueryBudgetTest;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+// Storage per reading and insert rate of the raw reading layout against the one it replaced.
+// Both are copies of the noise table (columns and indexes, not partitioned):
+//   uuid: random UUID ids from the application, B-tree on timestamp (the layout before noise_seq)
+//   sequence: ids from a sequence taken 100 at a time, BRIN on timestamp (the current layout)
+// Readings arrive like an import: every sensor once per tick, one transaction and JDBC batches of 50
+// per tick (statement-batch-size), in time order.
+//   mvn test -Pdatabase-tests -Dnoisesensor.scale-tests=true -Dtest=NoiseLayoutScaleTest
+//       [-Dnoisesensor.scale.layout-sensors=10000 -Dnoisesensor.scale.layout-ticks=144]
+@QuarkusTest
+@TestProfile(QueryBudgetTest.DatabaseProfile.class)
+@EnabledIfSystemProperty(named = "noisesensor.database-tests", matches = "true")
+@EnabledIfSystemProperty(named = "noisesensor.scale-tests", matches = "true")
+public class NoiseLayoutScaleTest {
+
+    private static final int BATCH = 50;
+    private static final int ALLOCATION = 100;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @ConfigProperty(name = "noisesensor.scale.layout-sensors", defaultValue = "10000")
+    int sensors;
+
+    @ConfigProperty(name = "noisesensor.scale.layout-ticks", defaultValue = "144")
+    int ticks;
+
+    @Test
+    public void layouts() throws SQLException {
+        UUID[] sensorIds = new UUID[sensors];
+        for (int i = 0; i < sensors; i++) {
+            sensorIds[i] = UUID.randomUUID();
+        }
+        System.out.printf(Locale.ROOT, "%-9s %10s %10s %12s %12s %12s %14s%n", "layout", "readings", "rows/s",
+                "heap B/row", "index B/row", "pkey B/row", "time idx B/row");
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            for (String layout : new String[] {"uuid", "sequence"}) {
+                String table = "layout_" + layout;
+                execute(connection, "drop table if exists " + table);
+                execute(connection, "drop sequence if exists layout_seq");
+                execute(connection, "create table " + table + " (like noise including defaults including indexes)");
+                if (layout.equals("uuid")) {
+                    execute(connection, "alter table " + table + " alter column id type uuid using null");
+                    execute(connection, "drop index " + table + "_timestamp_idx");
+                    execute(connection, "create index " + table + "_timestamp_idx on " + table + " (timestamp)");
+                } else {
+                    execute(connection, "create sequence layout_seq increment by " + ALLOCATION);
+                }
+                try {
+                    long nanos = insert(connection, table, layout.equals("uuid"), sensorIds);
+                    execute(connection, "vacuum analyze " + table);
+                    long rows = (long) sensors * ticks;
+                    assertEquals(rows, count(connection, "select count(*) from " + table));
+                    System.out.printf(Locale.ROOT, "%-9s %10d %10.0f %12.1f %12.1f %12.1f %14.2f%n", layout, rows,
+                            rows / (nanos / 1e9),
+                            count(connection, "select pg_relation_size('" + table + "')") / (double) rows,
+                            count(connection, "select pg_indexes_size('" + table + "')") / (double) rows,
+                            count(connection, "select pg_relation_size('" + table + "_pkey')") / (double) rows,
+                            count(connection, "select pg_relation_size('" + table + "_timestamp_idx')") / (double) rows);
+                } finally {
+                    execute(connection, "drop table " + table);
+                    execute(connection, "drop sequence if exists layout_seq");
+                }
+            }
+        }
+    }
+
+    // Inserts every tick in its own transaction, returns the time taken
+    private long insert(Connection connection, String table, boolean uuidIds, UUID[] sensorIds) throws SQLException {
+        LocalDateTime first = LocalDate.now().minusDays(30).atStartOfDay();
+        long start = System.nanoTime();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("insert into " + table
+                + " (noise_LAeq, noise_LAmax, noise_LAmin, sensor_id, timestamp, id) values (?, ?, ?, ?, ?, ?)");
+                PreparedStatement nextIds = connection.prepareStatement("select nextval('layout_seq')")) {
+            long nextId = 0;
+            long lastId = 0;
+            for (int tick = 0; tick < ticks; tick++) {
+                Timestamp timestamp = Timestamp.valueOf(first.plusMinutes(10L * tick));
+                for (int s = 0; s < sensorIds.length; s++) {
+                    insert.setFloat(1, 40 + (s + tick) % 40);
+                    insert.setFloat(2, 85);
+                    insert.setFloat(3, 30);
+                    insert.setObject(4, sensorIds[s]);
+                    insert.setTimestamp(5, timestamp);
+                    if (uuidIds) {
+                        insert.setObject(6, UUID.randomUUID());
+                    } else {
+                        // Hibernate's pooled optimizer: one nextval per ALLOCATION ids
+                        if (nextId == lastId) {
+                            try (ResultSet result = nextIds.executeQuery()) {
+                                result.next();
+                                nextId = result.getLong(1);
+                                lastId = nextId + ALLOCATION;
+                            }
+                        }
+                        insert.setLong(6, nextId++);
+                    }
+                    insert.addBatch();
+                    if ((s + 1) % BATCH == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long count(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package noisesensor.domain.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import noisesensor.data.model.Resolution;
+import noisesensor.data.repository.RollupRepository;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+// Run time of the grouped insert-select that aggregates a day (DailyAggregationService.reaggregate, also
+// used by the backfill) for growing sensor counts, next to the same statement run once per sensor.
+// Every sensor gets 'readings' readings spread over a day in the past, removed again afterwards.
+// Slow, so it needs a second property on top of the database-tests profile:
+//   mvn test -Pdatabase-tests -Dnoisesensor.scale-tests=true -Dtest=AggregationScaleTest
+//       [-Dnoisesensor.scale.sensors=2500,10000,20000 -Dnoisesensor.scale.readings=288]
+@QuarkusTest
+@TestProfile(QueryBudgetTest.DatabaseProfile.class)
+@EnabledIfSystemProperty(named = "noisesensor.database-tests", matches = "true")
+@EnabledIfSystemProperty(named = "noisesensor.scale-tests", matches = "true")
+public class AggregationScaleTest {
+
+    private static final String SOURCE = "scale-test";
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    DailyAggregationService dailyAggregationService;
+
+    @Inject
+    RollupRepository rollupRepository;
+
+    @ConfigProperty(name = "noisesensor.scale.sensors", defaultValue = "2500,10000,20000")
+    List<Integer> sizes;
+
+    @ConfigProperty(name = "noisesensor.scale.readings", defaultValue = "288")
+    int readings;
+
+    @Test
+    public void reaggregate() {
+        System.out.printf(Locale.ROOT, "%8s %10s %12s %12s %14s %16s%n",
+                "sensors", "readings", "grouped ms", "re-run ms", "us per reading", "per sensor ms");
+        for (int i = 0; i < sizes.size(); i++) {
+            int sensors = sizes.get(i);
+            LocalDate date = LocalDate.now().minusDays(20 + i);
+            clean(); // Left over by an interrupted run
+            try {
+                List<UUID> ids = seed(sensors, date);
+
+                long start = System.nanoTime();
+                int rows = dailyAggregationService.reaggregate(date);
+                long grouped = System.nanoTime() - start;
+                assertEquals(sensors, rows);
+
+                // Replaces the day's rows, the conflict path of the upsert
+                start = System.nanoTime();
+                assertEquals(sensors, dailyAggregationService.reaggregate(date));
+                long rerun = System.nanoTime() - start;
+
+                // The same statements once per sensor, round trips instead of rows, on the first size only
+                String perSensor = "-";
+                if (i == 0) {
+                    start = System.nanoTime();
+                    for (UUID id : ids) {
+                        QuarkusTransaction.requiringNew().run(() -> {
+                            rollupRepository.recomputeFromNoise(Resolution.HOUR, List.of(id), date.atStartOfDay(),
+                                    date.plusDays(1).atStartOfDay());
+                            rollupRepository.recomputeFromNoise(Resolution.DAY, List.of(id), date.atStartOfDay(),
+                                    date.plusDays(1).atStartOfDay());
+                        });
+                    }
+                    perSensor = String.valueOf((System.nanoTime() - start) / 1_000_000);
+                }
+
+                long total = (long) sensors * readings;
+                System.out.printf(Locale.ROOT, "%8d %10d %12d %12d %14.2f %16s%n", sensors, total,
+                        grouped / 1_000_000, rerun / 1_000_000, grouped / 1000.0 / total, perSensor);
+            } finally {
+                clean();
+            }
+        }
+    }
+
+    // 'sensors' sensors with 'readings' readings each, evenly spread over 'date', written like the partitions hold them
+    private List<UUID> seed(int sensors, LocalDate date) {
+        List<UUID> ids = QuarkusTransaction.requiringNew().call(() -> {
+            @SuppressWarnings("unchecked")
+            List<UUID> created = entityManager.createNativeQuery(
+                    "insert into sensor (id, source) select gen_random_uuid(), :source from generate_series(1, :count) "
+                    + "returning id")
+                    .setParameter("source", SOURCE)
+                    .setParameter("count", sensors)
+                    .getResultList();
+            entityManager.createNativeQuery(
+                    "insert into noise (id, sensor_id, timestamp, noise_LAeq, noise_LAmax, noise_LAmin) "
+                    + "select nextval('noise_seq'), s.id, cast(:day as timestamp) + i * (interval '1 day' / :readings), "
+                    + "40 + (i * 7 + hashtext(cast(s.id as text))) % 40, 85, 30 "
+                    + "from generate_series(0, :readings - 1) i cross join sensor s where s.source = :source "
+                    + "order by i, s.id")
+                    .setParameter("day", date.atStartOfDay())
+                    .setParameter("readings", readings)
+                    .setParameter("source", SOURCE)
+                    .executeUpdate();
+            return created;
+        });
+        QuarkusTransaction.requiringNew().run(() -> entityManager.createNativeQuery("analyze noise").executeUpdate());
+        return ids;
+    }
+
+    private void clean() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            for (String table : new String[] {"noise", "hourly_noise", "daily_noise"}) {
+                entityManager.createNativeQuery("delete from " + table + " where sensor_id in "
+                        + "(select id from sensor where source = :source)")
+                        .setParameter("source", SOURCE)
+                        .executeUpdate();
+            }
+            entityManager.createNativeQuery("delete from sensor where source = :source")
+                    .setParameter("source", SOURCE)
+                    .executeUpdate();
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package noisesensor.domain.service;
+
+import io.quarkus.test.Mock;
+import io.vertx.core.json.JsonArray;
+import jakarta.enterprise.context.ApplicationScoped;
+import noisesensor.presentation.other.SensorCommunityFetch;
+
+// Tests never download the Sensor.Community feed, QueryBudgetTest calls storeSensor with its own
+@Mock
+@ApplicationScoped
+public class OfflineSensorCommunityFetch extends SensorCommunityFetch {
+
+    @Override
+    public boolean fetchData(boolean storeNoise) {
+        return false;
+    }
+
+    @Override
+    public JsonArray recentData(Integer id) {
+        return null;
+    }
+}
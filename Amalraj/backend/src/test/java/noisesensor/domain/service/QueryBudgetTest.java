@@ -0,0 +1,223 @@
+package noisesensor.domain.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jakarta.inject.Inject;
+import noisesensor.common.api.request.DataRequest;
+import noisesensor.common.api.request.SubscribeRequest;
+import noisesensor.metrics.QueryBudget;
+import noisesensor.metrics.QueryCounter;
+import noisesensor.presentation.rest.DataResource;
+import noisesensor.presentation.rest.DisplayResource;
+import noisesensor.utils.Shard;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+// Every endpoint and job with a QueryBudget is run against a small and a ten times larger data set.
+// It fails when a run needs more statements than its budget, or when the statement count grows
+// with the data beyond the per-batch allowance (an N+1 query).
+// Needs a database, so it only runs in the database-tests profile (see application.properties):
+//   mvn test -Pdatabase-tests [-DTEST_DB_URL=jdbc:postgresql://localhost:5432/noisesensor_test]
+@QuarkusTest
+@TestProfile(QueryBudgetTest.DatabaseProfile.class)
+@EnabledIfSystemProperty(named = "noisesensor.database-tests", matches = "true")
+public class QueryBudgetTest {
+
+    private static final int SMALL = 20;
+    private static final int LARGE = 200;
+
+    public static class DatabaseProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            // Scheduled jobs would run statements in the middle of a count
+            return Map.of("quarkus.scheduler.enabled", "false");
+        }
+    }
+
+    @Inject
+    DataResource dataResource;
+
+    @Inject
+    DisplayResource displayResource;
+
+    @Inject
+    DataService dataService;
+
+    @Inject
+    SensorCommunityService sensorCommunityService;
+
+    @Inject
+    DailyAggregationService dailyAggregationService;
+
+    @ConfigProperty(name = "quarkus.hibernate-orm.jdbc.statement-batch-size")
+    int batchSize;
+
+    @Test
+    public void receiveData() {
+        assertBudget(DataResource.class, "receiveData", size -> {
+            UUID[] sensor = register(size);
+            return () -> dataResource.receiveData(reading(sensor, LocalDateTime.now()));
+        }, size -> 1);
+    }
+
+    @Test
+    public void registerSensor() {
+        assertBudget(DataResource.class, "registerSensor", size -> {
+            register(size);
+            return () -> dataResource.registerSensor(subscribeRequest());
+        }, size -> 2);
+    }
+
+    @Test
+    public void allSensors() {
+        assertBudget(DisplayResource.class, "allSensors", size -> {
+            register(size);
+            return () -> displayResource.allSensors();
+        }, size -> 0);
+    }
+
+    @Test
+    public void dayAndRecentData() {
+        for (String mode : new String[] {"day", "today", "week", "month", "year", "alltime"}) {
+            assertBudget(DisplayResource.class, "sendNoiseData", size -> {
+                UUID[] sensor = registerWithReadings(size);
+                return () -> displayResource.sendNoiseData(mode, sensor[0]);
+            }, size -> 0);
+        }
+        assertBudget(DisplayResource.class, "recentDataForOneSensor", size -> {
+            UUID[] sensor = registerWithReadings(size);
+            return () -> displayResource.recentDataForOneSensor(sensor[0]);
+        }, size -> 0);
+    }
+
+    @Test
+    public void storeSensor() {
+        // The counted run stores a reading per sensor of the feed: the inserts may grow per batch, the lookups may not
+        assertBudget(SensorCommunityService.class, "storeSensor", size -> {
+            JsonArray feed = feed(size);
+            return () -> sensorCommunityService.storeSensor(feed, true);
+        }, size -> size);
+    }
+
+    @Test
+    public void closeDay() {
+        assertBudget(DailyAggregationService.class, "closeDay", size -> {
+            registerWithReadings(size);
+            return () -> dailyAggregationService.closeDay(LocalDate.now().minusDays(1));
+        }, size -> 0);
+    }
+
+    @Test
+    public void aggregateDailyData() {
+        assertBudget(DailyAggregationService.class, "aggregateDailyData", size -> {
+            registerWithReadings(size);
+            return () -> dailyAggregationService.aggregateDailyData(LocalDate.now().minusDays(1), new Shard(0, 2));
+        }, size -> 0);
+    }
+
+    // Runs the invocation prepared by 'scenario' for both data set sizes. 'rows' is the number of rows
+    // the invocation writes for a size, what the per-batch part of the budget is for.
+    private void assertBudget(Class<?> type, String name, IntFunction<Runnable> scenario, IntFunction<Integer> rows) {
+        QueryBudget budget = Arrays.stream(type.getDeclaredMethods())
+                .filter(method -> method.getName().equals(name))
+                .map(method -> method.getAnnotation(QueryBudget.class))
+                .filter(annotation -> annotation != null)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(type.getSimpleName() + "." + name + " has no @QueryBudget"));
+        int[] statements = new int[2];
+        int[] sizes = {SMALL, LARGE};
+        for (int i = 0; i < sizes.length; i++) {
+            Runnable invocation = scenario.apply(sizes[i]);
+            invocation.run(); // The counted run finds a warm second-level cache, like any request after the first
+            QueryCounter.start();
+            try {
+                invocation.run();
+            } finally {
+                statements[i] = QueryCounter.stop();
+            }
+            int allowed = budget.value() + budget.perBatch() * batches(rows.apply(sizes[i]));
+            assertTrue(statements[i] <= allowed, type.getSimpleName() + "." + name + " ran " + statements[i]
+                    + " statements with " + sizes[i] + " records, budget " + allowed);
+        }
+        int growth = budget.perBatch() * (batches(rows.apply(LARGE)) - batches(rows.apply(SMALL)));
+        assertTrue(statements[1] - statements[0] <= growth, type.getSimpleName() + "." + name
+                + " statements grow with the data: " + statements[0] + " -> " + statements[1]);
+    }
+
+    private int batches(int rows) {
+        return (rows + batchSize - 1) / batchSize;
+    }
+
+    private UUID[] register(int count) {
+        UUID[] last = null;
+        for (int i = 0; i < Math.max(1, count); i++) {
+            JsonObject ids = dataService.registerSensor(subscribeRequest());
+            last = new UUID[] {(UUID) ids.getValue("sensor_id"), (UUID) ids.getValue("location_id")};
+        }
+        return last;
+    }
+
+    // 'count' sensors with readings spread over yesterday, so the per-sensor work of the daily jobs grows
+    // with the size, and the last one also with 'count' readings over the past hours
+    private UUID[] registerWithReadings(int count) {
+        LocalDateTime yesterday = LocalDate.now().minusDays(1).atStartOfDay();
+        UUID[] sensor = null;
+        for (int i = 0; i < count; i++) {
+            sensor = register(1);
+            for (int hour = 0; hour < 24; hour += 6) {
+                assertTrue(dataService.receiveData(reading(sensor, yesterday.plusHours(hour).plusMinutes(i % 60))));
+            }
+        }
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        for (int i = 0; i < count; i++) {
+            assertTrue(dataService.receiveData(reading(sensor, now.minusMinutes(i))));
+        }
+        return sensor;
+    }
+
+    private static SubscribeRequest subscribeRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new SubscribeRequest("DK", 55.6f + random.nextFloat() / 10, 12.5f + random.nextFloat() / 10, 0f, false);
+    }
+
+    private static DataRequest reading(UUID[] sensor, LocalDateTime timestamp) {
+        return new DataRequest(sensor[0], sensor[1], timestamp, 55f, 62f, 48f);
+    }
+
+    // Filtered Sensor.Community records (see SensorCommunityService.transformData) of unknown sensors
+    private static JsonArray feed(int count) {
+        JsonArray feed = new JsonArray();
+        int first = ThreadLocalRandom.current().nextInt(100_000_000, 1_000_000_000);
+        String timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString().replace('T', ' ');
+        for (int i = 0; i < count; i++) {
+            feed.add(new JsonObject()
+                    .put("sensor_id", first + i)
+                    .put("location_id", first + i)
+                    .put("timestamp", timestamp)
+                    .put("country", "DE")
+                    .put("latitude", "52.5")
+                    .put("longitude", "13.4")
+                    .put("altitude", "30")
+                    .put("indoor", false)
+                    .put("noise_LAeq", "55.0")
+                    .put("noise_LAmax", "62.0")
+                    .put("noise_LAmin", "48.0"));
+        }
+        return feed;
+    }
+}
@@ -0,0 +1,54 @@
+package noisesensor.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class AlertWindowTest {
+
+    // Above 70 dB for 10 minutes, or 15 dB above the last 20 readings (at least 5)
+    private static final AlertWindow.Rules RULES = new AlertWindow.Rules(70f, 600, 15f, 20, 5);
+
+    @Test
+    public void thresholdNeedsTheWholeDuration() {
+        AlertWindow window = new AlertWindow(RULES);
+        long second = 1_760_054_400L;
+        assertEquals(0, window.add(second, 75f));
+        assertEquals(0, window.add(second + 300, 75f));
+        // Dipping below restarts the duration
+        assertEquals(0, window.add(second + 400, 65f));
+        assertEquals(0, window.add(second + 500, 75f));
+        assertEquals(0, window.add(second + 1000, 75f));
+        assertEquals(AlertWindow.THRESHOLD_RAISED, window.add(second + 1100, 75f));
+        assertEquals(second + 1100, window.raisedAt(AlertWindow.Rule.THRESHOLD));
+        assertEquals(0, window.add(second + 1200, 80f));
+        assertEquals(AlertWindow.THRESHOLD_CLEARED, window.add(second + 1300, 60f));
+        assertEquals(-1, window.raisedAt(AlertWindow.Rule.THRESHOLD));
+    }
+
+    @Test
+    public void jumpAgainstTheRollingBaseline() {
+        AlertWindow window = new AlertWindow(RULES);
+        long second = 1_760_054_400L;
+        for (int i = 0; i < 50; i++) {
+            assertEquals(0, window.add(second++, 45f));
+        }
+        assertEquals(45f, window.baseline(), 0.01f);
+        assertEquals(AlertWindow.JUMP_RAISED, window.add(second++, 62f));
+        // Still well above the baseline, no second alert
+        assertEquals(0, window.add(second++, 60f));
+        assertEquals(AlertWindow.JUMP_CLEARED, window.add(second++, 46f));
+    }
+
+    @Test
+    public void noJumpBeforeTheBaselineIsKnownNorForLateReadings() {
+        AlertWindow window = new AlertWindow(RULES);
+        long second = 1_760_054_400L;
+        for (int i = 0; i < 4; i++) {
+            window.add(second + i, 40f);
+        }
+        assertEquals(0, window.add(second + 4, 65f));
+        assertEquals(0, window.add(second + 3, 90f));
+        assertEquals(second + 4, window.latestSecond());
+    }
+}
@@ -0,0 +1,57 @@
+package noisesensor.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class GorillaCodecTest {
+
+    @Test
+    public void decodesWhatWasEncoded() {
+        Random random = new Random(7);
+        int count = 5000;
+        long[] seconds = new long[count];
+        float[] levels = new float[count];
+        GorillaCodec.Writer writer = new GorillaCodec.Writer();
+        long second = 1_760_000_000L;
+        for (int i = 0; i < count; i++) {
+            // Mostly regular, with gaps and one reading out of order
+            second += i % 500 == 0 ? 3600 : 2;
+            seconds[i] = i == 10 ? second - 100 : second;
+            levels[i] = Math.round((45 + random.nextGaussian() * 5) * 10) / 10f;
+            writer.add(seconds[i], levels[i], levels[i] + 4.5f, levels[i] - 3f);
+        }
+
+        GorillaCodec.Reader reader = new GorillaCodec.Reader(writer.toBytes());
+        assertEquals(count, reader.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(reader.next());
+            assertEquals(seconds[i], reader.second());
+            assertEquals(levels[i], reader.laeq());
+            assertEquals(levels[i] + 4.5f, reader.lamax());
+            assertEquals(levels[i] - 3f, reader.lamin());
+        }
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void regularStableReadingsTakeAFewBitsEach() {
+        GorillaCodec.Writer writer = new GorillaCodec.Writer();
+        for (int i = 0; i < 10_000; i++) {
+            writer.add(1_760_000_000L + i * 10L, 50f, 55f, 45f);
+        }
+        // Under a byte per reading, a row of the noise table takes well over 100
+        assertTrue(writer.toBytes().length < 10_000);
+    }
+
+    @Test
+    public void emptyBlock() {
+        GorillaCodec.Reader reader = new GorillaCodec.Reader(new GorillaCodec.Writer().toBytes());
+        assertEquals(0, reader.size());
+        assertFalse(reader.next());
+    }
+}
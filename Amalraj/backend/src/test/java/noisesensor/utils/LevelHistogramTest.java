@@ -0,0 +1,54 @@
+package noisesensor.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class LevelHistogramTest {
+
+    @Test
+    public void statisticalLevelsOfUniformReadings() {
+        LevelHistogram histogram = new LevelHistogram();
+        for (int level = 40; level < 80; level++) {
+            histogram.add(level + 0.5f);
+        }
+        assertEquals(76f, histogram.exceeded(10), 0.01f);
+        assertEquals(60f, histogram.exceeded(50), 0.01f);
+        assertEquals(44f, histogram.exceeded(90), 0.01f);
+    }
+
+    @Test
+    public void mergedHistogramsEqualOneHistogramOfAllReadings() {
+        LevelHistogram all = new LevelHistogram();
+        LevelHistogram day1 = new LevelHistogram();
+        LevelHistogram day2 = new LevelHistogram();
+        for (int i = 0; i < 1000; i++) {
+            float level = 30 + (i * 37 % 60);
+            all.add(level);
+            (i % 2 == 0 ? day1 : day2).add(level);
+        }
+        LevelHistogram week = LevelHistogram.of(day1.toArray());
+        week.merge(day2);
+        assertArrayEquals(all.toArray(), week.toArray());
+        assertEquals(all.exceeded(10), week.exceeded(10));
+    }
+
+    @Test
+    public void outOfRangeLevelsAreClamped() {
+        LevelHistogram histogram = new LevelHistogram();
+        histogram.add(-3f);
+        histogram.add(Float.NaN);
+        histogram.add(500f);
+        int[] counts = histogram.toArray();
+        assertEquals(LevelHistogram.BINS, counts.length);
+        assertEquals(2, counts[0]);
+        assertEquals(1, counts[LevelHistogram.BINS - 1]);
+    }
+
+    @Test
+    public void emptyHistogramHasNoLevels() {
+        assertNull(LevelHistogram.of(null).exceeded(50));
+    }
+}
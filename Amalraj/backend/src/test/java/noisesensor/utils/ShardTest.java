@@ -0,0 +1,55 @@
+package noisesensor.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+public class ShardTest {
+
+    @Test
+    public void rangesCoverEveryUuidOnce() {
+        for (int count = 1; count <= 7; count++) {
+            for (int i = 0; i < count; i++) {
+                Shard shard = new Shard(i, count);
+                assertTrue(shard.contains(shard.lowest()));
+                assertTrue(shard.contains(shard.highest()));
+                if (i > 0) {
+                    // Adjacent ranges, compared like Postgres does (unsigned, byte by byte)
+                    UUID previous = new Shard(i - 1, count).highest();
+                    assertEquals(shard.lowest().getMostSignificantBits() - 1, previous.getMostSignificantBits());
+                }
+            }
+            assertEquals(new UUID(0, 0), new Shard(0, count).lowest());
+            assertEquals(new UUID(-1, -1), new Shard(count - 1, count).highest());
+        }
+        for (int n = 0; n < 1000; n++) {
+            UUID id = UUID.randomUUID();
+            int owners = 0;
+            for (int i = 0; i < 3; i++) {
+                owners += new Shard(i, 3).contains(id) ? 1 : 0;
+            }
+            assertEquals(1, owners);
+        }
+    }
+
+    @Test
+    public void sequentialCommunityIdsAreSpread() {
+        int[] counts = new int[4];
+        for (int id = 80_000; id < 84_000; id++) {
+            for (int i = 0; i < 4; i++) {
+                if (new Shard(i, 4).contains(id)) {
+                    counts[i]++;
+                }
+            }
+        }
+        int total = 0;
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, "unbalanced: " + count);
+            total += count;
+        }
+        assertEquals(4000, total);
+    }
+}
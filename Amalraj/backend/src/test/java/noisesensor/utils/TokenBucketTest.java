@@ -0,0 +1,68 @@
+package noisesensor.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void burstThenRefillRate() {
+        // 2 tokens per second, bursts of 5
+        TokenBucket bucket = new TokenBucket(2, 5);
+        long now = 42 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+        assertEquals(SECOND / 2, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now + SECOND / 2));
+        assertTrue(bucket.tryAcquire(now + SECOND / 2) > 0);
+        // After a long pause only a burst is available, not the whole pause
+        long later = now + 60 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(later));
+        }
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    public void releaseGivesTheTokenBack() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long now = SECOND;
+        assertEquals(0, bucket.tryAcquire(now));
+        assertFalse(bucket.isFull(now));
+        assertTrue(bucket.tryAcquire(now) > 0);
+        bucket.release();
+        assertTrue(bucket.isFull(now));
+        assertEquals(0, bucket.tryAcquire(now));
+    }
+
+    @Test
+    public void concurrentCallersNeverTakeMoreThanTheBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(0.001, 1000);
+        long now = SECOND;
+        int[] taken = new int[8];
+        Thread[] threads = new Thread[taken.length];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire(now) == 0) {
+                        taken[index]++;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        int total = 0;
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            total += taken[t];
+        }
+        assertEquals(1000, total);
+    }
+}